@@ -0,0 +1,98 @@
+package main.rice;
+
+import main.rice.basegen.BaseSetGenerator;
+import main.rice.parse.ConfigFile;
+import main.rice.parse.ConfigFileParser;
+import main.rice.parse.InvalidConfigException;
+import main.rice.test.ExecutionMode;
+import main.rice.test.TestCase;
+import main.rice.test.TestResults;
+import main.rice.test.Tester;
+import main.rice.test.Transport;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Times each of the Tester's execution modes on the same inputs as Main, so that the
+ * modes can be compared against each other on a real assignment. The modes that keep
+ * Python processes running are timed over every transport.
+ */
+public class Benchmark {
+
+    /**
+     * Generates the base test set for the given config file and times every execution
+     * mode on it, printing one line per mode and transport.
+     *
+     * @param args An array of strings containing the config file, path to buggy
+     *             implementations, and path to reference solution, in the same order as
+     *             Main
+     * @throws IOException thrown if input filePath is invalid
+     * @throws InvalidConfigException thrown if configFile is not of proper Brackus-Naur
+     * format for its given node
+     */
+    public static void main(String[] args) throws IOException, InvalidConfigException {
+        ConfigFileParser parseAid = new ConfigFileParser();
+        ConfigFile nodeData = parseAid.parse(parseAid.readFile(args[0]));
+        BaseSetGenerator baseTests = new BaseSetGenerator(nodeData.getNodes(),
+                nodeData.getNumRand());
+        System.out.print(compareModes(nodeData.getFuncName(), args[2], args[1],
+                baseTests.genBaseSet()));
+    }
+
+    /**
+     * Runs computeExpectedResults() and runTests() once in every execution mode (and,
+     * for POOL and FORK_SERVER, over every transport) and reports how long each took,
+     * along with whether each run's results match those of the first mode
+     * (PROCESS_PER_TEST).
+     *
+     * @param funcName     the name of the function under test
+     * @param solutionPath the path to the reference solution
+     * @param implDirPath  the path to the directory of buggy implementations
+     * @param tests        the test cases to run
+     * @return a report with one line per execution mode and transport
+     * @throws IOException if any of the paths are invalid
+     */
+    public static String compareModes(String funcName, String solutionPath,
+            String implDirPath, List<TestCase> tests) throws IOException {
+        StringBuilder report = new StringBuilder();
+        List<Set<Integer>> baseline = null;
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            // Only the modes with long-lived processes have a choice of transport
+            List<Transport> transports = mode == ExecutionMode.POOL
+                    || mode == ExecutionMode.FORK_SERVER
+                    ? List.of(Transport.values()) : List.of(Transport.PIPE);
+            for (Transport transport : transports) {
+                long start;
+                long expectedDone;
+                long testsDone;
+                TestResults results;
+                try (Tester tester = new Tester(funcName, solutionPath, implDirPath,
+                        tests)) {
+                    tester.setExecutionMode(mode);
+                    tester.setTransport(transport);
+
+                    // Time the two phases separately
+                    start = System.nanoTime();
+                    tester.computeExpectedResults();
+                    expectedDone = System.nanoTime();
+                    results = tester.runTests();
+                    testsDone = System.nanoTime();
+                }
+
+                // Every mode should produce exactly the same results
+                if (baseline == null) {
+                    baseline = results.getCaseToFiles();
+                }
+                String verdict = results.getCaseToFiles().equals(baseline)
+                        ? "same results" : "DIFFERENT RESULTS";
+                report.append(String.format(
+                        "%-30s expected: %7d ms   tests: %7d ms   %s%n",
+                        mode + " / " + transport, (expectedDone - start) / 1000000,
+                        (testsDone - expectedDone) / 1000000, verdict));
+            }
+        }
+        return report.toString();
+    }
+}
@@ -1,16 +1,20 @@
 package main.rice;
 
 import main.rice.basegen.BaseSetGenerator;
+import main.rice.concisegen.AdaptiveCoverGenerator;
 import main.rice.concisegen.ConciseSetGenerator;
 import main.rice.parse.ConfigFile;
 import main.rice.parse.ConfigFileParser;
 import main.rice.parse.InvalidConfigException;
 import main.rice.test.TestCase;
 import main.rice.test.TestResults;
+import main.rice.test.TestSession;
 import main.rice.test.Tester;
+import main.rice.test.WatchSession;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Main class of the FEAT package> Contains functions necessary to perform the
@@ -18,18 +22,43 @@ import java.util.Set;
  */
 public class Main {
 
+    /**
+     * The number of buggy implementations each test is sampled on when generating the
+     * concise set adaptively
+     */
+    private static final int ADAPTIVE_SAMPLE_SIZE = 4;
+
     /**
      * Runs FEAT, generating a concise test set for a given python function
      * using a config file, correct python implementation, and series of buggy
      * implementations whose bugs must be hit by the concise set
      * @param args An array of strings containing the config file under test,
      *             path to reference solution, and path to buggy implementations
-     *             in that order.
+     *             in that order, optionally followed by --watch to keep watching
+     *             the buggy implementations and print an updated concise set
+     *             whenever they change, or by --adaptive to only run the tests
+     *             that the concise set needs.
      * @throws IOException thrown if input filePath is invalid
      * @throws InvalidConfigException thrown if configFile is not of proper Brackus-Naur
      * format for its given node
      */
     public static void main(String[] args) throws IOException, InvalidConfigException {
+        if (args.length > 3 && args[3].equals("--watch")) {
+            watchTests(args, conciseSet -> System.out.println("Concise set of test " +
+                    "cases for the given function that catch the bugs in every buggy " +
+                    "implementation so far: " + conciseSet));
+            return;
+        }
+        if (args.length > 3 && args[3].equals("--adaptive")) {
+            AdaptiveCoverGenerator adaptiveAid =
+                    new AdaptiveCoverGenerator(ADAPTIVE_SAMPLE_SIZE);
+            System.out.println("Concise set of test cases for the given function that" +
+                    "catch the bugs in every buggy implementation" +
+                    generateTestsAdaptively(args, adaptiveAid));
+            System.out.println("Ran " + adaptiveAid.getCellsRun() + " tests on buggy " +
+                    "implementations and skipped " + adaptiveAid.getCellsSkipped());
+            return;
+        }
         System.out.println("Concise set of test cases for the given function that" +
                 "catch the bugs in every buggy implementation" + generateTests(args));
     }
@@ -47,6 +76,80 @@ public class Main {
      */
     public static Set<TestCase> generateTests(String[] args)
             throws IOException, InvalidConfigException {
+        // Create a tester and run the tests, corroborating them against correct results
+        TestResults results;
+        try (Tester testRunner = createTester(args)) {
+            testRunner.computeExpectedResults();
+            results = testRunner.runTests();
+        }
+        // Reduce the base set test to an approximately greedy concise set that hits
+        // Every implementation in the wrongSet
+        ConciseSetGenerator conciseAid = new ConciseSetGenerator();
+        return conciseAid.setCover(results);
+    }
+
+    /**
+     * Generates a concise test set like generateTests, but builds the concise set while
+     * running the tests, so that only the tests on buggy implementations that the
+     * concise set depends on are run.
+     * @param args An array of strings containing the config file under test,
+     *             path to buggy implementations, and path to reference solution
+     *             in the same order as generateTests.
+     * @param adaptiveAid The generator used to build the concise set, which afterwards
+     *                    reports how many tests it ran and skipped
+     * @return Set of TestCase objects representing a concise test set that "hits"
+     * every buggy implementation
+     * @throws IOException thrown if input filePath is invalid
+     * @throws InvalidConfigException thrown if configFile is not of proper Brackus-Naur
+     * format for its given node
+     */
+    public static Set<TestCase> generateTestsAdaptively(String[] args,
+            AdaptiveCoverGenerator adaptiveAid)
+            throws IOException, InvalidConfigException {
+        try (Tester testRunner = createTester(args)) {
+            testRunner.computeExpectedResults();
+            try (TestSession session = testRunner.openSession()) {
+                return adaptiveAid.setCover(session);
+            }
+        }
+    }
+
+    /**
+     * Runs FEAT continuously on a directory of buggy implementations that is still
+     * filling up: the base set and expected results are computed once, and then
+     * only new or modified implementations are tested, with an updated concise set
+     * published after every change. Runs until the calling thread is interrupted.
+     * @param args An array of strings containing the config file under test,
+     *             path to buggy implementations, and path to reference solution
+     *             in the same order as generateTests.
+     * @param publisher Receives the updated concise test set after every change
+     * @throws IOException thrown if input filePath is invalid
+     * @throws InvalidConfigException thrown if configFile is not of proper Brackus-Naur
+     * format for its given node
+     */
+    public static void watchTests(String[] args, Consumer<Set<TestCase>> publisher)
+            throws IOException, InvalidConfigException {
+        try (Tester testRunner = createTester(args)) {
+            ConciseSetGenerator conciseAid = new ConciseSetGenerator();
+            WatchSession session = new WatchSession(testRunner,
+                    results -> publisher.accept(conciseAid.setCover(results)));
+            session.run();
+        }
+    }
+
+    /**
+     * Parses the config file and generates the base test set, returning a Tester
+     * that will run the base set.
+     * @param args An array of strings containing the config file under test,
+     *             path to buggy implementations, and path to reference solution
+     *             in the same order as generateTests.
+     * @return A Tester for the base test set
+     * @throws IOException thrown if input filePath is invalid
+     * @throws InvalidConfigException thrown if configFile is not of proper Brackus-Naur
+     * format for its given node
+     */
+    private static Tester createTester(String[] args)
+            throws IOException, InvalidConfigException {
         // Create a ConfigFileParser to run its methods on the input
         ConfigFileParser parseAid = new ConfigFileParser();
         // Parse the config file and find its nodes
@@ -54,13 +157,9 @@ public class Main {
         // Generate every test formed from the parsed nodes
         BaseSetGenerator baseTests = new BaseSetGenerator(nodeData.getNodes(),
                 nodeData.getNumRand());
-        // Create a tester and run the tests, corroborating them against correct results
-        Tester testRunner = new Tester(nodeData.getFuncName(),args[2],args[1],baseTests.genBaseSet());
-        testRunner.computeExpectedResults();
-        TestResults results = testRunner.runTests();
-        // Reduce the base set test to an approximately greedy concise set that hits
-        // Every implementation in the wrongSet
-        ConciseSetGenerator conciseAid = new ConciseSetGenerator();
-        return conciseAid.setCover(results);
+        Tester testRunner = new Tester(nodeData.getFuncName(),args[2],args[1],
+                baseTests.genBaseSet());
+        testRunner.setResourceLimits(nodeData.getLimits());
+        return testRunner;
     }
 }
@@ -0,0 +1,273 @@
+package main.rice.concisegen;
+
+import main.rice.test.TestCase;
+import main.rice.test.TestSession;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An online version of the greedy set cover in ConciseSetGenerator, which runs test
+ * cases and builds the concise set together rather than first filling in the results of
+ * every test case on every implementation. Each test case is first run on a small random
+ * sample of the implementations, which gives an estimate of how many implementations it
+ * catches. In each round, the most promising test cases are then run on every
+ * implementation that hasn't been caught yet, until one of them is known to catch at
+ * least as many of those implementations as any other test case is estimated to; that
+ * test case is added to the concise set. Implementations that have already been caught
+ * are never run again, and neither are test cases that can no longer beat the best one,
+ * so most of the results are never computed.
+ */
+public class AdaptiveCoverGenerator {
+
+    /**
+     * The number of implementations each test case is run on to estimate how many it
+     * catches
+     */
+    private final int sampleSize;
+
+    /**
+     * The source of randomness for choosing the sampled implementations
+     */
+    private final Random rand;
+
+    /**
+     * The number of results computed by the most recent call to setCover()
+     */
+    private int cellsRun;
+
+    /**
+     * The number of results skipped by the most recent call to setCover()
+     */
+    private int cellsSkipped;
+
+    /**
+     * Constructor for an AdaptiveCoverGenerator.
+     *
+     * @param sampleSize the number of implementations each test case is run on to
+     *                   estimate how many it catches
+     */
+    public AdaptiveCoverGenerator(int sampleSize) {
+        this.sampleSize = sampleSize;
+        this.rand = new Random();
+    }
+
+    /**
+     * Finds an approximately minimal set of test cases that catches every implementation
+     * caught by any of the session's test cases, running only the test cases that the
+     * greedy cover needs. The result is the same kind of concise set as that produced by
+     * ConciseSetGenerator.setCover().
+     *
+     * @param session the session used to run test cases on implementations
+     * @return a set of test cases that is an approximately minimal set covering
+     * @throws IOException if a test case cannot be run
+     */
+    public Set<TestCase> setCover(TestSession session) throws IOException {
+        int numTests = session.getTests().size();
+        int numFiles = session.getImplFilenames().size();
+        int cellsBefore = session.getCellsRun();
+
+        // The result of each test case on each file, or null if it hasn't been run;
+        // true means the test case caught the file
+        Boolean[][] cells = new Boolean[numTests][numFiles];
+
+        // The files that no selected test case catches, and that haven't been shown
+        // to pass every test case
+        Set<Integer> uncovered = new TreeSet<>();
+        for (int fileIndex = 0; fileIndex < numFiles; fileIndex++) {
+            uncovered.add(fileIndex);
+        }
+
+        // Run every test case on a random sample of the files
+        List<Integer> files = new ArrayList<>(uncovered);
+        for (int testIndex = 0; testIndex < numTests; testIndex++) {
+            Collections.shuffle(files, this.rand);
+            for (int fileIndex : files.subList(0, Math.min(this.sampleSize, numFiles))) {
+                cells[testIndex][fileIndex] = session.catches(testIndex, fileIndex);
+            }
+        }
+
+        // The test cases are considered in the order the run history suggests, so that
+        // ties go to the one that has caught the most files in past runs
+        List<Integer> schedule = session.getTestSchedule();
+        double[] priors = session.getCatchRates();
+        int[] ranks = new int[numTests];
+        for (int rank = 0; rank < numTests; rank++) {
+            ranks[schedule.get(rank)] = rank;
+        }
+
+        Set<TestCase> hittingSet = new HashSet<>();
+        Set<Integer> candidates = new LinkedHashSet<>(schedule);
+        while (true) {
+            // Drop the files that are known to pass every remaining test case; no test
+            // case can cover them. Those that passed the selected test cases already
+            // did so when those test cases were run.
+            uncovered.removeIf(fileIndex -> this.passesAll(cells, candidates, fileIndex));
+            if (uncovered.isEmpty()) {
+                break;
+            }
+
+            // Start from the best test case among those whose results on the uncovered
+            // files are all known
+            int bestCase = -1;
+            int bestCount = 0;
+            for (int testIndex : candidates) {
+                if (this.countUnknown(cells[testIndex], uncovered) == 0) {
+                    int count = this.countCaught(cells[testIndex], uncovered);
+                    if (count > bestCount) {
+                        bestCount = count;
+                        bestCase = testIndex;
+                    }
+                }
+            }
+
+            // Run the most promising test cases on every uncovered file until none of
+            // the rest is estimated to beat the best one; while none is known to catch
+            // anything, even a test case estimated to catch nothing is run, so that
+            // every result is known before the files are given up on
+            while (true) {
+                int nextCase = -1;
+                double nextEstimate = bestCount;
+                for (int testIndex : candidates) {
+                    double estimate =
+                        this.estimate(cells[testIndex], uncovered, priors[testIndex]);
+                    if (this.countUnknown(cells[testIndex], uncovered) > 0
+                        && (estimate > nextEstimate
+                        || (nextCase == -1 && bestCount == 0))) {
+                        nextEstimate = estimate;
+                        nextCase = testIndex;
+                    }
+                }
+                if (nextCase == -1) {
+                    break;
+                }
+
+                for (int fileIndex : uncovered) {
+                    if (cells[nextCase][fileIndex] == null) {
+                        cells[nextCase][fileIndex] = session.catches(nextCase, fileIndex);
+                    }
+                }
+                int count = this.countCaught(cells[nextCase], uncovered);
+                if (bestCase == -1 || count > bestCount
+                    || (count == bestCount && ranks[nextCase] < ranks[bestCase])) {
+                    bestCount = count;
+                    bestCase = nextCase;
+                }
+            }
+
+            // If no test case catches an uncovered file (even the best one catches
+            // none), every remaining result is now known, so the files will all be
+            // dropped above
+            if (bestCount == 0) {
+                continue;
+            }
+
+            // Add the selected test case to the hitting set and remove the files it
+            // covers
+            final int selected = bestCase;
+            uncovered.removeIf(fileIndex -> cells[selected][fileIndex]);
+            candidates.remove(selected);
+            hittingSet.add(session.getTests().get(selected));
+        }
+
+        // Record how much of the full results it took
+        this.cellsRun = session.getCellsRun() - cellsBefore;
+        this.cellsSkipped = numTests * numFiles - this.cellsRun;
+        return hittingSet;
+    }
+
+    /**
+     * @return the number of results (test case, implementation pairs) computed by the
+     * most recent call to setCover()
+     */
+    public int getCellsRun() {
+        return this.cellsRun;
+    }
+
+    /**
+     * @return the number of results (test case, implementation pairs) that the most
+     * recent call to setCover() never computed
+     */
+    public int getCellsSkipped() {
+        return this.cellsSkipped;
+    }
+
+    /**
+     * Determines whether a file is known to pass every one of the given test cases.
+     *
+     * @param cells     the result of each test case on each file
+     * @param testCases the test cases to check
+     * @param fileIndex the file to check
+     * @return true if the file has been run on, and passed, every given test case
+     */
+    private boolean passesAll(Boolean[][] cells, Set<Integer> testCases, int fileIndex) {
+        for (int testIndex : testCases) {
+            if (cells[testIndex][fileIndex] != Boolean.FALSE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the given files that a test case is known to catch.
+     *
+     * @param results the test case's result on each file
+     * @param files   the files to count
+     * @return the number of files that the test case caught
+     */
+    private int countCaught(Boolean[] results, Set<Integer> files) {
+        int count = 0;
+        for (int fileIndex : files) {
+            if (results[fileIndex] == Boolean.TRUE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the given files that a test case hasn't been run on.
+     *
+     * @param results the test case's result on each file
+     * @param files   the files to count
+     * @return the number of files that the test case hasn't been run on
+     */
+    private int countUnknown(Boolean[] results, Set<Integer> files) {
+        int count = 0;
+        for (int fileIndex : files) {
+            if (results[fileIndex] == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Estimates how many of the given files a test case catches: those it is known to
+     * catch, plus those it hasn't been run on scaled by the rate at which it has caught
+     * files so far. The rate is smoothed towards the test case's catch rate in past runs,
+     * so that a test case that hasn't caught anything yet still has a chance of catching
+     * something.
+     *
+     * @param results the test case's result on each file
+     * @param files   the files to estimate for
+     * @param prior   the test case's catch rate in past runs
+     * @return the estimated number of files that the test case catches
+     */
+    private double estimate(Boolean[] results, Set<Integer> files, double prior) {
+        int run = 0;
+        int caught = 0;
+        for (Boolean result : results) {
+            if (result != null) {
+                run++;
+                if (result) {
+                    caught++;
+                }
+            }
+        }
+        double rate = (caught + 2.0 * prior) / (run + 2.0);
+        return this.countCaught(results, files)
+            + rate * this.countUnknown(results, files);
+    }
+}
@@ -19,6 +19,12 @@ public class ConciseSetGenerator {
      * (index i) to the set of implementations (Si) that it caught -- all contained within
      * results --, finds an approximately minimal subset of B (M) such that all of the
      * incorrect implementations are caught by at least one element in M.
+     * <p>
+     * Implementations caught by exactly the same test cases are interchangeable here,
+     * so each group of them is merged into a single element of the universe, weighted
+     * by the size of the group. Every test case covers the same total weight as it
+     * would have covered implementations, so the greedy choices (and the result) are
+     * the same as without merging.
      *
      * @param results the results of running all tests in B on all files in S
      * @return M, a set of test cases that is an approximately minimal set covering
@@ -28,37 +34,69 @@ public class ConciseSetGenerator {
         // Initialize the structure to return
         HashSet<TestCase> hittingSet = new HashSet<>();
 
-        // We'll be mutating both caseToFiles and wrongSet, so make copies
-        List<Set<Integer>> caseToFiles = new ArrayList<>();
-        for (Set<Integer> set : results.getCaseToFiles()) {
-            caseToFiles.add(new HashSet<>(set));
+        // Merge the files that were caught by the same test cases into groups, and map
+        // each test case to the groups it caught instead of the files
+        List<Set<Integer>> fileToCases = new ArrayList<>();
+        for (int caseIndex = 0; caseIndex < results.getCaseToFiles().size();
+            caseIndex++) {
+            for (int fileIndex : results.getCaseToFiles().get(caseIndex)) {
+                while (fileToCases.size() <= fileIndex) {
+                    fileToCases.add(new HashSet<>());
+                }
+                fileToCases.get(fileIndex).add(caseIndex);
+            }
+        }
+        Map<Set<Integer>, Integer> groupIndices = new HashMap<>();
+        List<Integer> groupWeights = new ArrayList<>();
+        List<Set<Integer>> caseToGroups = new ArrayList<>();
+        for (int caseIndex = 0; caseIndex < results.getCaseToFiles().size();
+            caseIndex++) {
+            caseToGroups.add(new HashSet<>());
+        }
+        Set<Integer> wrongSet = new HashSet<>();
+        for (int fileIndex : results.getWrongSet()) {
+            Set<Integer> cases = fileIndex < fileToCases.size()
+                ? fileToCases.get(fileIndex) : new HashSet<>();
+            Integer groupIndex = groupIndices.get(cases);
+            if (groupIndex == null) {
+                groupIndex = groupWeights.size();
+                groupIndices.put(cases, groupIndex);
+                groupWeights.add(0);
+                for (int caseIndex : cases) {
+                    caseToGroups.get(caseIndex).add(groupIndex);
+                }
+            }
+            groupWeights.set(groupIndex, groupWeights.get(groupIndex) + 1);
+            wrongSet.add(groupIndex);
         }
-        Set<Integer> wrongSet = new HashSet<>(results.getWrongSet());
 
-        // Select tests until we've "covered" every program that was initially in the
-        // wrong set
+        // Select tests until we've "covered" every group of programs that was initially
+        // in the wrong set
         while (wrongSet.size() > 0) {
             int maxFilesCaught = 0;
             int caseOfMaxFiles = -1;
 
             // Find the test case that covers the most heretofore-uncovered files
-            for (int caseIndex = 0; caseIndex < caseToFiles.size(); caseIndex++) {
-                Set<Integer> filesCaught = caseToFiles.get(caseIndex);
-                if (filesCaught.size() > maxFilesCaught) {
-                    maxFilesCaught = filesCaught.size();
+            for (int caseIndex = 0; caseIndex < caseToGroups.size(); caseIndex++) {
+                int filesCaught = 0;
+                for (int groupIndex : caseToGroups.get(caseIndex)) {
+                    filesCaught += groupWeights.get(groupIndex);
+                }
+                if (filesCaught > maxFilesCaught) {
+                    maxFilesCaught = filesCaught;
                     caseOfMaxFiles = caseIndex;
                 }
             }
 
-            // Remove all covered files from the wrongSet
-            HashSet<Integer> coveredFiles =
-                new HashSet<>(caseToFiles.get(caseOfMaxFiles));
-            wrongSet.removeAll(coveredFiles);
+            // Remove all covered groups from the wrongSet
+            HashSet<Integer> coveredGroups =
+                new HashSet<>(caseToGroups.get(caseOfMaxFiles));
+            wrongSet.removeAll(coveredGroups);
 
-            // Update the caseToFiles mapping such that the set of files caught by each
-            // test no longer includes the newly-covered files
-            for (Set<Integer> filesCaught : caseToFiles) {
-                filesCaught.removeAll(coveredFiles);
+            // Update the caseToGroups mapping such that the set of groups caught by each
+            // test no longer includes the newly-covered groups
+            for (Set<Integer> groupsCaught : caseToGroups) {
+                groupsCaught.removeAll(coveredGroups);
             }
 
             // Add the selected test case to the hitting set
@@ -68,4 +106,4 @@ public class ConciseSetGenerator {
         // Return the hitting set
         return hittingSet;
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,11 @@
 package main.rice.obj;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
 /**
  * An abstract class whose instances represent specific Python objects.
  */
@@ -19,6 +25,18 @@ public abstract class APyObj {
     @Override
     public abstract String toString();
 
+    /**
+     * Builds and returns a canonical string representation of this object: one that is
+     * identical for any two objects that are equal by value. For most types this is
+     * just the Python string representation, but unordered types (sets and dicts) sort
+     * their contents, and strings escape their special characters.
+     *
+     * @return a canonical string representation of this object
+     */
+    public String toCanonicalString() {
+        return this.toString();
+    }
+
     /**
      * Compares this to the input object by value.
      *
@@ -46,4 +64,123 @@ public abstract class APyObj {
     public int hashCode() {
         return this.getValue().hashCode();
     }
+
+    /**
+     * Writes a binary encoding of this object to the given stream, from which the test
+     * harness rebuilds the equivalent Python object without evaluating any code. Each
+     * object is encoded as a one-byte type tag followed by its contents: a 4-byte int
+     * ('i'), a length-prefixed decimal string ('f', so that the float is parsed exactly
+     * as its string representation would be), a single byte ('b'), a length-prefixed
+     * UTF-8 string ('s'), or a 4-byte count followed by that many encoded elements
+     * ('l', 't' and 'e' for lists, tuples and sets) or key-value pairs ('d'). All
+     * integers are big-endian.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    public abstract void encode(DataOutputStream out) throws IOException;
+
+    /**
+     * Reads a single object from the given stream, as written by encode(). Strings are
+     * always read back as PyStringObjs, even those written by a PyCharObj, since the two
+     * are the same to Python.
+     *
+     * @param in the stream to read the encoding from
+     * @return the decoded object
+     * @throws IOException if the stream cannot be read or doesn't hold a valid encoding
+     */
+    public static APyObj decode(DataInputStream in) throws IOException {
+        char tag = (char) in.readUnsignedByte();
+        if (tag == 'i') {
+            return new PyIntObj(in.readInt());
+        }
+        if (tag == 'b') {
+            return new PyBoolObj(in.readBoolean());
+        }
+        if (tag == 'f') {
+            return new PyFloatObj(Float.valueOf(decodeText(in)));
+        }
+        if (tag == 's') {
+            return new PyStringObj(decodeText(in));
+        }
+        if (tag == 'd') {
+            int size = in.readInt();
+            Map<APyObj, APyObj> entries = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                APyObj key = decode(in);
+                entries.put(key, decode(in));
+            }
+            return new PyDictObj<>(entries);
+        }
+
+        // Otherwise, it must be a list, tuple or set
+        if (tag != 'l' && tag != 't' && tag != 'e') {
+            throw new IOException("unknown type tag " + tag);
+        }
+        int size = in.readInt();
+        List<APyObj> elems = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            elems.add(decode(in));
+        }
+        if (tag == 'l') {
+            return new PyListObj<>(elems);
+        }
+        if (tag == 't') {
+            return new PyTupleObj<>(elems);
+        }
+        return new PySetObj<>(new LinkedHashSet<>(elems));
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string to the given stream, as used by the
+     * encodings of strings and floats.
+     *
+     * @param out  the stream to write the string to
+     * @param text the string to write
+     * @throws IOException if the stream cannot be written to
+     */
+    protected static void encodeText(DataOutputStream out, String text)
+        throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from the given stream, as written by
+     * encodeText().
+     *
+     * @param in the stream to read the string from
+     * @return the string
+     * @throws IOException if the stream cannot be read
+     */
+    protected static String decodeText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Quotes a string for use in a canonical string representation, escaping
+     * backslashes, quotes and anything that isn't printable ASCII, so that no string
+     * can be mistaken for part of the representation of another object (e.g. a set of
+     * strings).
+     *
+     * @param text the string to quote
+     * @return the string in single quotes, with every special character escaped
+     */
+    protected static String toCanonicalText(String text) {
+        StringBuilder sb = new StringBuilder("'");
+        text.codePoints().forEach(codePoint -> {
+            if (codePoint == '\\' || codePoint == '\'') {
+                sb.append('\\').appendCodePoint(codePoint);
+            } else if (codePoint >= 0x20 && codePoint < 0x7f) {
+                sb.appendCodePoint(codePoint);
+            } else {
+                sb.append(String.format("\\U%08x", codePoint));
+            }
+        });
+        return sb.append('\'').toString();
+    }
+
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /**
  * A representation of Python objects of type bool.
  */
@@ -40,4 +43,17 @@ public class PyBoolObj extends APyObj {
         }
         return "True";
     }
+
+    /**
+     * Writes a binary encoding of this object (the tag 'b' followed by 1 for True or 0
+     * for False) to the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeByte('b');
+        out.writeBoolean(this.value);
+    }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /**
  * A helper class for implementing PyStringObjs; each instance represents a single
  * character in a Python string.
@@ -39,4 +42,28 @@ public class PyCharObj extends APyObj {
     public String toString() {
         return "'" + this.value.toString() + "'";
     }
+
+    /**
+     * Builds and returns a canonical string representation of this object, which is the
+     * same as that of a one-character PyStringObj, with special characters escaped.
+     *
+     * @return a canonical string representation of this object
+     */
+    @Override
+    public String toCanonicalString() {
+        return toCanonicalText(this.value.toString());
+    }
+
+    /**
+     * Writes a binary encoding of this object (the tag 's' followed by a one-character
+     * string) to the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeByte('s');
+        encodeText(out, this.value.toString());
+    }
 }
\ No newline at end of file
@@ -1,5 +1,10 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -56,4 +61,39 @@ public class PyDictObj<KeyType extends APyObj, ValType extends APyObj> extends A
         repr.append("}");
         return repr.toString();
     }
+
+    /**
+     * Builds and returns a canonical string representation of this object, in which the
+     * (canonically represented) key-value pairs are sorted, so that the order in which
+     * they were added doesn't matter.
+     *
+     * @return a canonical string representation of this object
+     */
+    @Override
+    public String toCanonicalString() {
+        List<String> entries = new ArrayList<>();
+        for (Map.Entry<KeyType, ValType> entry : this.value.entrySet()) {
+            entries.add(entry.getKey().toCanonicalString() + ": "
+                + entry.getValue().toCanonicalString());
+        }
+        Collections.sort(entries);
+        return "{" + String.join(", ", entries) + "}";
+    }
+
+    /**
+     * Writes a binary encoding of this object (the tag 'd' followed by the number of
+     * key-value pairs and the encoding of each key and value) to the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeByte('d');
+        out.writeInt(this.value.size());
+        for (Map.Entry<KeyType, ValType> entry : this.value.entrySet()) {
+            entry.getKey().encode(out);
+            entry.getValue().encode(out);
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /**
  * A representation of Python objects of type int.
  */
@@ -37,4 +40,17 @@ public class PyIntObj extends APyObj {
     public String toString() {
         return this.value.toString();
     }
+
+    /**
+     * Writes a binary encoding of this object (the tag 'i' followed by the value) to
+     * the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeByte('i');
+        out.writeInt(this.value);
+    }
 }
\ No newline at end of file
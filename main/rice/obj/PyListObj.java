@@ -1,5 +1,8 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,6 +32,21 @@ public class PyListObj<InnerType extends APyObj> extends AIterablePyObj<InnerTyp
         return this.getValue().toString();
     }
 
+    /**
+     * Builds and returns a canonical string representation of this object, in which
+     * each element is represented canonically.
+     *
+     * @return a canonical string representation of this object
+     */
+    @Override
+    public String toCanonicalString() {
+        List<String> elems = new ArrayList<>();
+        for (InnerType elem : this.value) {
+            elems.add(elem.toCanonicalString());
+        }
+        return "[" + String.join(", ", elems) + "]";
+    }
+
     /**
      * Compares this to the input object by value; a wrapper around the implementation
      * implementation in the superclass (APyObj) that first checks that obj is a
@@ -44,4 +62,20 @@ public class PyListObj<InnerType extends APyObj> extends AIterablePyObj<InnerTyp
         }
         return super.equals(obj);
     }
+
+    /**
+     * Writes a binary encoding of this object (the tag 'l' followed by the number of
+     * elements and the encoding of each element) to the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeByte('l');
+        out.writeInt(this.value.size());
+        for (InnerType elem : this.value) {
+            elem.encode(out);
+        }
+    }
 }
\ No newline at end of file
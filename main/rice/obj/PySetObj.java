@@ -1,5 +1,7 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -47,6 +49,28 @@ public class PySetObj<InnerType extends APyObj> extends AIterablePyObj<InnerType
         return repr.toString();
     }
 
+    /**
+     * Builds and returns a canonical string representation of this object, in which the
+     * (canonically represented) elements are sorted, so that the order in which they
+     * were added doesn't matter.
+     *
+     * @return a canonical string representation of this object
+     */
+    @Override
+    public String toCanonicalString() {
+        // Special case for an empty set
+        if (this.value.size() == 0) {
+            return "set()";
+        }
+
+        List<String> elems = new ArrayList<>();
+        for (InnerType elem : this.value) {
+            elems.add(elem.toCanonicalString());
+        }
+        Collections.sort(elems);
+        return "{" + String.join(", ", elems) + "}";
+    }
+
     /**
      * Compares this to the input object by value, ensuring that the two inner lists
      * contain identical sets of elements (order doesn't matter).
@@ -81,4 +105,20 @@ public class PySetObj<InnerType extends APyObj> extends AIterablePyObj<InnerType
         Set<InnerType> thisValue = new HashSet<>(this.getValue());
         return thisValue.hashCode();
     }
+
+    /**
+     * Writes a binary encoding of this object (the tag 'e' followed by the number of
+     * elements and the encoding of each element) to the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeByte('e');
+        out.writeInt(this.value.size());
+        for (InnerType elem : this.value) {
+            elem.encode(out);
+        }
+    }
 }
\ No newline at end of file
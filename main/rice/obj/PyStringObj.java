@@ -1,5 +1,7 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -46,4 +48,37 @@ public class PyStringObj extends AIterablePyObj<PyCharObj> {
         }
         return "'" + sb.toString() + "'";
     }
+
+    /**
+     * Builds and returns a canonical string representation of this object, in which
+     * quotes, backslashes and other special characters are escaped, so that no string
+     * can be mistaken for a different object (e.g. the string "a', 'b" for two strings).
+     *
+     * @return a canonical string representation of this object
+     */
+    @Override
+    public String toCanonicalString() {
+        StringBuilder sb = new StringBuilder();
+        for (PyCharObj character : this.value) {
+            sb.append(character.getValue());
+        }
+        return toCanonicalText(sb.toString());
+    }
+
+    /**
+     * Writes a binary encoding of this object (the tag 's' followed by the string) to
+     * the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (PyCharObj character : this.value) {
+            sb.append(character.getValue());
+        }
+        out.writeByte('s');
+        encodeText(out, sb.toString());
+    }
 }
\ No newline at end of file
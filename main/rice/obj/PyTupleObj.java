@@ -1,5 +1,8 @@
 package main.rice.obj;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,6 +46,26 @@ public class PyTupleObj<InnerType extends APyObj> extends AIterablePyObj<InnerTy
         return repr.toString();
     }
 
+    /**
+     * Builds and returns a canonical string representation of this object, in which
+     * each element is represented canonically.
+     *
+     * @return a canonical string representation of this object
+     */
+    @Override
+    public String toCanonicalString() {
+        List<String> elems = new ArrayList<>();
+        for (InnerType elem : this.value) {
+            elems.add(elem.toCanonicalString());
+        }
+
+        // A single-element tuple needs a trailing comma
+        if (elems.size() == 1) {
+            return "(" + elems.get(0) + ",)";
+        }
+        return "(" + String.join(", ", elems) + ")";
+    }
+
     /**
      * Compares this to the input object by value; a wrapper around the implemenation
      * in the superclass (APyObj) that first checks that obj is a PyTupleObj.
@@ -57,4 +80,20 @@ public class PyTupleObj<InnerType extends APyObj> extends AIterablePyObj<InnerTy
         }
         return super.equals(obj);
     }
+
+    /**
+     * Writes a binary encoding of this object (the tag 't' followed by the number of
+     * elements and the encoding of each element) to the given stream.
+     *
+     * @param out the stream to write the encoding to
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeByte('t');
+        out.writeInt(this.value.size());
+        for (InnerType elem : this.value) {
+            elem.encode(out);
+        }
+    }
 }
\ No newline at end of file
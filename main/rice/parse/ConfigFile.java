@@ -1,6 +1,7 @@
 package main.rice.parse;
 
 import main.rice.node.APyNode;
+import main.rice.test.ResourceLimits;
 
 import java.util.List;
 
@@ -15,6 +16,8 @@ public class ConfigFile {
     List<APyNode<?>> nodes;
     // The number of random tests to generate
     int numRand;
+    // The limits on the resources each process running a buggy implementation may use
+    ResourceLimits limits;
 
     /**
      * A constructor that stores the parsed config file as a singular object
@@ -23,9 +26,24 @@ public class ConfigFile {
      * @param numRand Number of random tests to generate
      */
     public ConfigFile(String funcName, List<APyNode<?>> nodes, int numRand){
+        this(funcName, nodes, numRand, ResourceLimits.NONE);
+    }
+
+    /**
+     * A constructor that stores the parsed config file, including its resource limits,
+     * as a singular object
+     * @param funcName Function under test's name
+     * @param nodes APYNodes reflecting arguments to function in test
+     * @param numRand Number of random tests to generate
+     * @param limits Limits on the resources each process running a buggy
+     *               implementation may use
+     */
+    public ConfigFile(String funcName, List<APyNode<?>> nodes, int numRand,
+                      ResourceLimits limits){
         this.funcName = funcName;
         this.nodes = nodes;
         this. numRand = numRand;
+        this.limits = limits;
     }
 
     /**
@@ -51,5 +69,15 @@ public class ConfigFile {
     public int getNumRand() {
         return numRand;
     }
+
+    /**
+     * Getter method for the resource limits, which are all off unless the config file
+     * sets them
+     * @return The limits on the resources each process running a buggy implementation
+     * may use
+     */
+    public ResourceLimits getLimits() {
+        return this.limits;
+    }
 }
 
@@ -2,6 +2,7 @@ package main.rice.parse;
 
 import main.rice.node.*;
 import main.rice.obj.*;
+import main.rice.test.ResourceLimits;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -457,6 +458,54 @@ public class ConfigFileParser extends JSONObject {
     }
 
 
+    /**
+     * Reads a single optional limit from the limits of a config file
+     * @param limits The JSONObject stored at the limits key
+     * @param key The name of the limit
+     * @return The value of the limit, or 0 (no limit) if it is not set
+     * @throws InvalidConfigException thrown if the limit is not a non-negative integer
+     */
+    private long limitGen(JSONObject limits, String key) throws InvalidConfigException {
+        if (!limits.has(key)){
+            return 0;
+        }
+        Object limit = limits.get(key);
+        if (!(limit instanceof Integer || limit instanceof Long) ||
+                ((Number) limit).longValue() < 0){
+            throw new InvalidConfigException("The limit " + key + " is not a " +
+                    "non-negative integer");
+        }
+        return ((Number) limit).longValue();
+    }
+
+    /**
+     * Parses the optional limits of a config file, which is a JSONObject that may hold
+     * any of "memory mb", "cpu seconds", "open files" and "processes"
+     * @param conData The parsed config file
+     * @return The resource limits, with any limit that is not set turned off
+     * @throws InvalidConfigException thrown if the limits are not a JSONObject, hold an
+     * unknown key, or hold a limit that is not a non-negative integer
+     */
+    private ResourceLimits limitsGen(JSONObject conData) throws InvalidConfigException {
+        if (!conData.has("limits")){
+            return ResourceLimits.NONE;
+        }
+        if (!(conData.get("limits") instanceof JSONObject)){
+            throw new InvalidConfigException("The value stored at limits is not a " +
+                    "JSONObject");
+        }
+        JSONObject limits = conData.getJSONObject("limits");
+        for (String key : limits.keySet()){
+            if (!List.of("memory mb", "cpu seconds", "open files", "processes")
+                    .contains(key)){
+                throw new InvalidConfigException("Unknown limit " + key);
+            }
+        }
+        return new ResourceLimits(limitGen(limits, "memory mb") * 1024 * 1024,
+                limitGen(limits, "cpu seconds"), limitGen(limits, "open files"),
+                limitGen(limits, "processes"));
+    }
+
     /**
      * Takes in a JSON string and parses it into a configFile object
      * @param contents The JSON string to be parsed
@@ -532,9 +581,9 @@ public class ConfigFileParser extends JSONObject {
                             ((String)((JSONArray)conData.get("random domain")).get(i)))
             );
         }
-        // Form and return the configFile
+        // Form and return the configFile, with its optional resource limits
         return new ConfigFile((String)conData.get("fname"),domain,
-                (Integer)conData.get("num random"));
+                (Integer)conData.get("num random"), limitsGen(conData));
     }
 }
 
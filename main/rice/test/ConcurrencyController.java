@@ -0,0 +1,270 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides how many implementation files are tested at once, adjusting the limit as the
+ * run goes by additive increase and multiplicative decrease (AIMD). After every file,
+ * the controller looks at how long each test case run on it took (compared to a floor
+ * that follows the fastest recent files), the system load average and the available
+ * physical memory. If any of them shows the machine to be overloaded, the limit is
+ * halved, at most once per limit's worth of files, so that the files started before
+ * the last decrease can finish first; otherwise, the limit goes up by one after a
+ * limit's worth of files in a row.
+ * Throughput is tracked alongside, and every change of the limit is logged with the
+ * signals that caused it.
+ * <p>
+ * Files wait for the limit in the order in which they asked, so the order in which they
+ * are started (see Tester.getMakespanReport()) is kept.
+ */
+class ConcurrencyController {
+
+    /**
+     * How many times the latency floor a file's per-test latency may be before the
+     * machine counts as overloaded
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * How much the latency floor rises with every file that isn't faster than it, so
+     * that one unusually fast file doesn't hold it down for the rest of the run
+     */
+    private static final double FLOOR_GROWTH = 1.1;
+
+    /**
+     * The per-test latency, in nanoseconds, below which latencies are too noisy to
+     * compare; a file only counts as slow if it is slower than this many times the
+     * tolerance
+     */
+    private static final double MIN_LATENCY = 1e6;
+
+    /**
+     * How many times the number of processors the system load average may be before
+     * the machine counts as overloaded
+     */
+    private static final double LOAD_TOLERANCE = 2.0;
+
+    /**
+     * The smallest fraction of physical memory that may be available before the
+     * machine counts as overloaded
+     */
+    private static final double MIN_AVAILABLE_MEMORY = 0.1;
+
+    /**
+     * The file from which Linux reports how much memory is available
+     */
+    private static final Path MEMINFO = Path.of("/proc/meminfo");
+
+    /**
+     * The most files that may ever be tested at once
+     */
+    private final int ceiling;
+
+    /**
+     * The value of System.nanoTime() when the controller was created
+     */
+    private final long start;
+
+    /**
+     * The log of every change of the limit
+     */
+    private final List<String> decisions;
+
+    /**
+     * The number of files that may be tested at once right now
+     */
+    private int limit;
+
+    /**
+     * The number of files being tested right now
+     */
+    private int active;
+
+    /**
+     * The ticket handed to the next file that asks to start
+     */
+    private long nextTicket;
+
+    /**
+     * The ticket of the next file allowed to start
+     */
+    private long nextServed;
+
+    /**
+     * The number of files that have finished
+     */
+    private int completions;
+
+    /**
+     * The number of test cases run on the files that have finished
+     */
+    private long testsRun;
+
+    /**
+     * The number of files in a row that have finished without any sign of overload
+     */
+    private int goodStreak;
+
+    /**
+     * The number of finished files before which the limit isn't decreased again
+     */
+    private int holdUntil;
+
+    /**
+     * The per-test latency, in nanoseconds, that a file's is compared to: the latency
+     * of the fastest recent file, rising by FLOOR_GROWTH with every file since
+     */
+    private double latencyFloor;
+
+    /**
+     * Constructor for a ConcurrencyController.
+     *
+     * @param initial the number of files that may be tested at once to begin with
+     * @param ceiling the most files that may ever be tested at once
+     */
+    ConcurrencyController(int initial, int ceiling) {
+        this.ceiling = Math.max(ceiling, 1);
+        this.limit = Math.max(Math.min(initial, this.ceiling), 1);
+        this.start = System.nanoTime();
+        this.decisions = new ArrayList<>();
+        this.latencyFloor = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Waits until a file may start being tested; every call must be followed by a call
+     * to release() once the file has been tested.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    synchronized void acquire() throws InterruptedException {
+        // A controller only lives for one run, which an interruption ends, so a ticket
+        // that is given up doesn't need to be handed on
+        long ticket = this.nextTicket++;
+        while (ticket != this.nextServed || this.active >= this.limit) {
+            this.wait();
+        }
+        this.nextServed++;
+        this.active++;
+        this.notifyAll();
+    }
+
+    /**
+     * Records that a file has been tested, and lets the next one start.
+     */
+    synchronized void release() {
+        this.active--;
+        this.notifyAll();
+    }
+
+    /**
+     * Adjusts the limit after a file has been tested. Files on which no test case was
+     * actually run (such as broken or cached ones) or on which a test case timed out
+     * (whose time says more about the time budget than about the machine) only count
+     * towards the throughput.
+     *
+     * @param fileResult the results of testing the file, including how long it took
+     */
+    synchronized void record(ImplResult fileResult) {
+        int casesRun = fileResult.getCasesRun();
+        this.completions++;
+        this.testsRun += fileResult.getOutputs().size() + fileResult.getTimedOut().size();
+        if (casesRun == 0 || !fileResult.getTimedOut().isEmpty()
+            || fileResult.getElapsedNanos() <= 0) {
+            return;
+        }
+
+        // Gather the signals of overload
+        double latency = (double) fileResult.getElapsedNanos() / casesRun;
+        this.latencyFloor = Math.min(latency, this.latencyFloor * FLOOR_GROWTH);
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = os.getSystemLoadAverage();
+        double availableMemory = availableMemory(os);
+        String reason = null;
+        if (latency > LATENCY_TOLERANCE * Math.max(this.latencyFloor, MIN_LATENCY)) {
+            reason = "latency";
+        } else if (load > LOAD_TOLERANCE * os.getAvailableProcessors()) {
+            reason = "load";
+        } else if (availableMemory < MIN_AVAILABLE_MEMORY) {
+            reason = "memory";
+        }
+
+        // Back off at once, but grow only once the current limit has proven itself
+        int oldLimit = this.limit;
+        if (reason != null) {
+            this.goodStreak = 0;
+            if (this.completions < this.holdUntil || this.limit == 1) {
+                return;
+            }
+            this.limit = Math.max(this.limit / 2, 1);
+            this.holdUntil = this.completions + oldLimit;
+        } else {
+            this.goodStreak++;
+            if (this.goodStreak < this.limit || this.limit >= this.ceiling) {
+                return;
+            }
+            this.goodStreak = 0;
+            this.limit++;
+            this.notifyAll();
+            reason = "no overload";
+        }
+
+        long elapsed = System.nanoTime() - this.start;
+        this.decisions.add(String.format("%d ms: %d -> %d files at once (%s; latency "
+                + "%.1f ms/test, floor %.1f ms/test; load %.2f; %.0f%% memory available; "
+                + "%.1f tests/s)", elapsed / 1000000, oldLimit, this.limit, reason,
+            latency / 1e6, this.latencyFloor / 1e6, load, availableMemory * 100,
+            this.testsRun * 1e9 / elapsed));
+    }
+
+    /**
+     * Finds the fraction of physical memory that is available for new processes. On
+     * Linux, this is MemAvailable, which (unlike the free memory) includes the page
+     * cache that can be reclaimed, so that a machine that has merely read a lot of files
+     * doesn't count as out of memory. Elsewhere, the free memory is used instead.
+     *
+     * @param os the operating system's management bean
+     * @return the available fraction of physical memory, or 1 if it isn't known
+     */
+    private static double availableMemory(OperatingSystemMXBean os) {
+        // Read MemTotal and MemAvailable (both in kB) on Linux
+        long total = 0;
+        long available = -1;
+        try {
+            for (String line : Files.readAllLines(MEMINFO)) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields[0].equals("MemTotal:")) {
+                    total = Long.parseLong(fields[1]);
+                } else if (fields[0].equals("MemAvailable:")) {
+                    available = Long.parseLong(fields[1]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux (or too old to report MemAvailable), so fall back to the bean
+        }
+        if (total > 0 && available >= 0) {
+            return (double) available / total;
+        }
+
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean memory =
+                (com.sun.management.OperatingSystemMXBean) os;
+            if (memory.getTotalMemorySize() > 0) {
+                return (double) memory.getFreeMemorySize() / memory.getTotalMemorySize();
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return the log of every change of the limit so far, one line per change
+     */
+    synchronized List<String> getDecisions() {
+        return new ArrayList<>(this.decisions);
+    }
+}
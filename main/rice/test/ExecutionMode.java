@@ -0,0 +1,34 @@
+package main.rice.test;
+
+/**
+ * The ways in which a Tester can run test cases on the implementation files through
+ * Python. The expected results are computed the same way in every mode, in batches of
+ * test cases run on the solution.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Starts a fresh python3 process for every (test case, implementation) pair.
+     */
+    PROCESS_PER_TEST,
+
+    /**
+     * Sends every test case to a pool of long-lived python3 worker processes, each of
+     * which keeps the wrapper and the imported implementations loaded between test
+     * cases.
+     */
+    POOL,
+
+    /**
+     * Starts a single python3 process per implementation, which runs every test case in
+     * turn and streams back one result per test case.
+     */
+    BATCH,
+
+    /**
+     * Starts a single python3 fork server per implementation, which preloads the
+     * implementation, then forks a fresh child for each test case. Each test case runs
+     * in a clean copy of the server, so no state leaks from one test case to the next.
+     */
+    FORK_SERVER
+}
@@ -0,0 +1,158 @@
+package main.rice.test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The results of running the test cases on a single implementation file.
+ */
+class ImplResult {
+
+    /**
+     * The indices of the test cases that caught the file (including those that timed
+     * out)
+     */
+    private final Set<Integer> caughtBy;
+
+    /**
+     * The indices of the test cases that ran out of time on the file
+     */
+    private final Set<Integer> timedOut;
+
+    /**
+     * The digest of what the file returned on each test case that returned (or failed
+     * to return) a value, by index (see OutputDigest)
+     */
+    private final Map<Integer, Long> outputs;
+
+    /**
+     * The time (in nanoseconds) that testing the file took, or 0 if it wasn't measured
+     */
+    private long elapsedNanos;
+
+    /**
+     * The number of test cases that were actually run on the file, rather than taken
+     * from the result cache or filled in for a broken file
+     */
+    private int casesRun;
+
+    /**
+     * Constructor for an ImplResult; initially no test case has caught the file.
+     */
+    ImplResult() {
+        this.caughtBy = new HashSet<>();
+        this.timedOut = new HashSet<>();
+        this.outputs = new HashMap<>();
+    }
+
+    /**
+     * @return the indices of the test cases that caught the file
+     */
+    Set<Integer> getCaughtBy() {
+        return this.caughtBy;
+    }
+
+    /**
+     * @return the indices of the test cases that ran out of time on the file
+     */
+    Set<Integer> getTimedOut() {
+        return this.timedOut;
+    }
+
+    /**
+     * @return the digest of what the file returned on each test case, by index
+     */
+    Map<Integer, Long> getOutputs() {
+        return this.outputs;
+    }
+
+    /**
+     * @return the time (in nanoseconds) that testing the file took, or 0 if it wasn't
+     * measured
+     */
+    long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Records how long testing the file took.
+     *
+     * @param elapsedNanos the time in nanoseconds
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of test cases that were actually run on the file, rather than
+     * taken from the result cache or filled in for a broken file
+     */
+    int getCasesRun() {
+        return this.casesRun;
+    }
+
+    /**
+     * Records that test cases were actually run on the file.
+     *
+     * @param casesRun the number of test cases that were run
+     */
+    void addCasesRun(int casesRun) {
+        this.casesRun += casesRun;
+    }
+
+    /**
+     * Records the digest of what the file returned on a test case.
+     *
+     * @param testIndex the index of the test case
+     * @param digest    the digest of the output, or OutputDigest.ERROR if there was none
+     */
+    void addOutput(int testIndex, long digest) {
+        this.outputs.put(testIndex, digest);
+    }
+
+    /**
+     * Builds the file's behavior signature: the digest of its output on every test
+     * case, with a marker for each test case that timed out or wasn't run.
+     *
+     * @param numTests the number of test cases
+     * @return an array where the i-th element is the digest for the i-th test case
+     */
+    long[] getSignature(int numTests) {
+        long[] signature = new long[numTests];
+        Arrays.fill(signature, OutputDigest.NOT_RUN);
+        for (Map.Entry<Integer, Long> output : this.outputs.entrySet()) {
+            signature[output.getKey()] = output.getValue();
+        }
+        for (int testIndex : this.timedOut) {
+            signature[testIndex] = OutputDigest.TIMEOUT;
+        }
+        return signature;
+    }
+
+    /**
+     * Records that a test case ran out of time on the file, which also counts as that
+     * test case catching the file.
+     *
+     * @param testIndex the index of the test case that timed out
+     */
+    void addTimeout(int testIndex) {
+        this.caughtBy.add(testIndex);
+        this.timedOut.add(testIndex);
+    }
+
+    /**
+     * Adds the results of another run on the same file (such as that of a single test
+     * case) to these results.
+     *
+     * @param other the results to add
+     */
+    void merge(ImplResult other) {
+        this.caughtBy.addAll(other.caughtBy);
+        this.timedOut.addAll(other.timedOut);
+        this.outputs.putAll(other.outputs);
+        this.casesRun += other.casesRun;
+    }
+}
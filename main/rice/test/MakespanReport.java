@@ -0,0 +1,112 @@
+package main.rice.test;
+
+import java.util.List;
+
+/**
+ * How long it took to test a set of implementation files concurrently (the makespan,
+ * from the first file starting to the last one finishing), next to how long the run
+ * history predicted it would take given the order in which the files were started,
+ * along with every adjustment of the number of files tested at once.
+ */
+public class MakespanReport {
+
+    /**
+     * The number of files that were tested
+     */
+    private final int numFiles;
+
+    /**
+     * The number of files that were tested at once (at first, if the number was
+     * adjusted as the run went)
+     */
+    private final int numWorkers;
+
+    /**
+     * The predicted makespan in nanoseconds, or -1 if there was no history to predict it
+     * from
+     */
+    private final long predictedNanos;
+
+    /**
+     * The actual makespan in nanoseconds
+     */
+    private final long actualNanos;
+
+    /**
+     * The log of every change of the number of files tested at once, one line per
+     * change
+     */
+    private final List<String> concurrencyDecisions;
+
+    /**
+     * Constructor for a MakespanReport.
+     *
+     * @param numFiles             the number of files that were tested
+     * @param numWorkers           the number of files that were tested at once (at
+     *                             first, if the number was adjusted as the run went)
+     * @param predictedNanos       the predicted makespan in nanoseconds, or -1 if there
+     *                             was no history to predict it from
+     * @param actualNanos          the actual makespan in nanoseconds
+     * @param concurrencyDecisions the log of every change of the number of files
+     *                             tested at once (see ConcurrencyController)
+     */
+    MakespanReport(int numFiles, int numWorkers, long predictedNanos, long actualNanos,
+        List<String> concurrencyDecisions) {
+        this.numFiles = numFiles;
+        this.numWorkers = numWorkers;
+        this.predictedNanos = predictedNanos;
+        this.actualNanos = actualNanos;
+        this.concurrencyDecisions = List.copyOf(concurrencyDecisions);
+    }
+
+    /**
+     * @return the number of files that were tested
+     */
+    public int getNumFiles() {
+        return this.numFiles;
+    }
+
+    /**
+     * @return the number of files that were tested at once (at first, if the number was
+     * adjusted as the run went)
+     */
+    public int getNumWorkers() {
+        return this.numWorkers;
+    }
+
+    /**
+     * @return the predicted makespan in nanoseconds, or -1 if there was no history to
+     * predict it from
+     */
+    public long getPredictedNanos() {
+        return this.predictedNanos;
+    }
+
+    /**
+     * @return the actual makespan in nanoseconds
+     */
+    public long getActualNanos() {
+        return this.actualNanos;
+    }
+
+    /**
+     * @return the log of every change of the number of files tested at once, one line
+     * per change, with the signals that caused it; empty if the number was fixed
+     */
+    public List<String> getConcurrencyDecisions() {
+        return this.concurrencyDecisions;
+    }
+
+    /**
+     * @return a one-line summary of the report, with times in milliseconds
+     */
+    @Override
+    public String toString() {
+        String predicted = this.predictedNanos < 0 ? "unknown"
+            : (this.predictedNanos / 1000000) + " ms";
+        return "makespan of " + this.numFiles + " files on " + this.numWorkers
+            + " workers: predicted " + predicted + ", actual "
+            + (this.actualNanos / 1000000) + " ms" + (this.concurrencyDecisions.isEmpty()
+            ? "" : ", " + this.concurrencyDecisions.size() + " concurrency changes");
+    }
+}
@@ -0,0 +1,145 @@
+package main.rice.test;
+
+/**
+ * Digests of the values returned by the function under test, which is all that comes
+ * back from Python when a test case runs. The wrapper reduces each value to a canonical
+ * encoding, in which values that compare equal in Python (such as 1 and 1.0, or two
+ * sets holding the same elements in a different order) encode the same, and hashes the
+ * encoding to 64 bits. Whether a test case catches an implementation is then decided in
+ * Java, by comparing the implementation's digest to the solution's.
+ * <p>
+ * The top bit of a digest is always set, so a digest can never be mistaken for one of
+ * the markers below, which stand in for outputs that don't exist.
+ */
+public final class OutputDigest {
+
+    /**
+     * Marks a test case that wasn't run
+     */
+    public static final long NOT_RUN = 0;
+
+    /**
+     * Marks a test case that raised an exception instead of returning a value; it never
+     * matches anything, not even another error
+     */
+    public static final long ERROR = 1;
+
+    /**
+     * Marks a test case that ran out of time
+     */
+    public static final long TIMEOUT = 2;
+
+    /**
+     * Marks a test case that ran out of memory under the memory limit (see
+     * ResourceLimits)
+     */
+    public static final long MEMORY_LIMIT = 3;
+
+    /**
+     * Marks a test case that used up its CPU time limit
+     */
+    public static final long CPU_LIMIT = 4;
+
+    /**
+     * Marks a test case that couldn't open a file under the open file limit
+     */
+    public static final long OPEN_FILES_LIMIT = 5;
+
+    /**
+     * Marks a test case that couldn't start a process under the process limit
+     */
+    public static final long PROCESS_LIMIT = 6;
+
+    /**
+     * Marks a test case whose process died (or whose output couldn't be read) before it
+     * reported anything. Like an error, it never matches anything, but unlike one it may
+     * come from a passing failure of the machine (such as the OOM killer) rather than
+     * from the code under test, so it is never cached.
+     */
+    public static final long NO_OUTPUT = 7;
+
+    /**
+     * The number of hexadecimal digits in the text form of a digest
+     */
+    private static final int HEX_DIGITS = 16;
+
+    /**
+     * OutputDigest only holds constants and static helpers.
+     */
+    private OutputDigest() {
+    }
+
+    /**
+     * Parses a digest from the text form printed by the wrapper. Anything else,
+     * including the empty output of a process that died, means there was no output.
+     *
+     * @param text the text to parse
+     * @return the digest, or NO_OUTPUT if the text isn't a digest
+     */
+    static long parse(String text) {
+        if (text.length() != HEX_DIGITS) {
+            return NO_OUTPUT;
+        }
+        try {
+            return Long.parseUnsignedLong(text, 16);
+        } catch (NumberFormatException e) {
+            return NO_OUTPUT;
+        }
+    }
+
+    /**
+     * Determines whether an output may be cached, which it may unless it could come from
+     * a passing failure of the machine rather than from the code that was run.
+     *
+     * @param digest the digest of the output
+     * @return false if the digest is NO_OUTPUT; true otherwise
+     */
+    static boolean isCacheable(long digest) {
+        return digest != NO_OUTPUT;
+    }
+
+    /**
+     * Formats a digest (or marker) in the text form printed by the wrapper.
+     *
+     * @param digest the digest to format
+     * @return the digest as 16 hexadecimal digits
+     */
+    static String format(long digest) {
+        return String.format("%016x", digest);
+    }
+
+    /**
+     * Names the resource limit that a test case ran into, if any.
+     *
+     * @param digest the digest of the test case's output
+     * @return "memory", "cpu", "open files" or "processes" if the digest marks a limit
+     * that was hit (see ResourceLimits); null otherwise
+     */
+    public static String limitHit(long digest) {
+        if (digest == MEMORY_LIMIT) {
+            return "memory";
+        }
+        if (digest == CPU_LIMIT) {
+            return "cpu";
+        }
+        if (digest == OPEN_FILES_LIMIT) {
+            return "open files";
+        }
+        if (digest == PROCESS_LIMIT) {
+            return "processes";
+        }
+        return null;
+    }
+
+    /**
+     * Determines whether an output matches the expected output.
+     *
+     * @param digest   the digest of the output
+     * @param expected the digest of the expected output
+     * @return true if both are the digests of equal values; false otherwise, including
+     * whenever either one is a marker
+     */
+    static boolean matches(long digest, long expected) {
+        return digest == expected && digest < 0;
+    }
+}
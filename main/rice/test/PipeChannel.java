@@ -0,0 +1,103 @@
+package main.rice.test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A WorkerChannel that writes every request frame to the process's stdin and reads
+ * every response frame from its stdout.
+ */
+class PipeChannel implements WorkerChannel {
+
+    /**
+     * The stream over which requests are sent to the process
+     */
+    private final DataOutputStream requests;
+
+    /**
+     * The stream over which responses are read back from the process
+     */
+    private final DataInputStream responses;
+
+    /**
+     * Constructor for a PipeChannel.
+     *
+     * @param process the Python process to talk to
+     */
+    PipeChannel(Process process) {
+        this.requests = new DataOutputStream(
+            new BufferedOutputStream(process.getOutputStream()));
+        this.responses = new DataInputStream(
+            new BufferedInputStream(process.getInputStream()));
+    }
+
+    /**
+     * Writes the request frame to the process's stdin.
+     *
+     * @param header  the text fields making up the request
+     * @param payload the binary payload of the request
+     * @throws IOException if the process has gone away
+     */
+    @Override
+    public void send(List<String> header, byte[] payload) throws IOException {
+        writeRequest(this.requests, header, payload);
+        this.requests.flush();
+    }
+
+    /**
+     * Reads the response frame from the process's stdout.
+     *
+     * @return the response
+     * @throws IOException if the process has gone away
+     */
+    @Override
+    public String receive() throws IOException {
+        return readResponse(this.responses);
+    }
+
+    /**
+     * Closes the process's stdin, which lets it exit cleanly.
+     */
+    @Override
+    public void close() {
+        try {
+            this.requests.close();
+        } catch (IOException e) {
+            // The process has already gone away, so there's nothing left to tell it
+        }
+    }
+
+    /**
+     * Writes a request frame (see PyWorker) to a stream, without flushing it.
+     *
+     * @param out     the stream to write to
+     * @param header  the text fields making up the request
+     * @param payload the binary payload of the request
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeRequest(DataOutputStream out, List<String> header, byte[] payload)
+        throws IOException {
+        out.writeInt(header.size() + 1);
+        for (String field : header) {
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    /**
+     * Reads a response frame (see PyWorker) from a stream.
+     *
+     * @param in the stream to read from
+     * @return the response
+     * @throws IOException if the stream ends early or cannot be read
+     */
+    static String readResponse(DataInputStream in) throws IOException {
+        byte[] response = new byte[in.readInt()];
+        in.readFully(response);
+        return new String(response, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,108 @@
+package main.rice.test;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A single long-lived Python process that executes requests and answers them, over a
+ * WorkerChannel: either its stdin and stdout (see PipeChannel), or a ring buffer in
+ * shared memory (see SharedMemoryChannel).
+ * <p>
+ * Each request is framed as a 4-byte field count followed by that many fields, each of
+ * which is a 4-byte length followed by that many bytes. Every field but the last is
+ * UTF-8 text; the last is the request's binary payload (the encoded arguments of a test
+ * case). Each response is a single field framed the same way (a 4-byte length followed
+ * by UTF-8 text). All integers are big-endian.
+ */
+class PyWorker {
+
+    /**
+     * The Python process backing this worker
+     */
+    private final Process process;
+
+    /**
+     * The connection over which requests are sent to the process and responses are
+     * read back
+     */
+    private final WorkerChannel channel;
+
+    /**
+     * The number of requests this worker has answered so far
+     */
+    private int tasksRun;
+
+    /**
+     * Constructor for a PyWorker; starts the Python process.
+     *
+     * @param pb      the process builder used to start the worker process, which should
+     *                discard stderr, as nothing reads it
+     * @param ringDir the directory in which to create the shared memory for a
+     *                SharedMemoryChannel (in which case the process must have been
+     *                started with the --shm flag), or null to talk over pipes
+     * @throws IOException if the process cannot be started
+     */
+    PyWorker(ProcessBuilder pb, Path ringDir) throws IOException {
+        this.process = pb.start();
+        if (ringDir == null) {
+            this.channel = new PipeChannel(this.process);
+        } else {
+            try {
+                this.channel = new SharedMemoryChannel(this.process, ringDir);
+            } catch (IOException e) {
+                Watchdog.killTree(this.process);
+                throw e;
+            }
+        }
+        this.tasksRun = 0;
+    }
+
+    /**
+     * Sends a single request to the worker and waits for its response. If the response
+     * doesn't arrive in time, the worker (and everything it started) is killed.
+     *
+     * @param header        the text fields making up the request
+     * @param payload       the binary payload of the request
+     * @param timeoutMillis the time allowed for the response, in milliseconds, or 0 to
+     *                      wait indefinitely
+     * @return the worker's response
+     * @throws TestTimeoutException if the worker was killed for taking too long
+     * @throws IOException          if the worker has died or the channel cannot be
+     *                              accessed
+     */
+    String call(List<String> header, byte[] payload, long timeoutMillis)
+        throws IOException {
+        Watchdog watchdog = new Watchdog(this.process, timeoutMillis);
+        try {
+            this.channel.send(header, payload);
+            String response = this.channel.receive();
+            this.tasksRun++;
+            return response;
+        } catch (IOException e) {
+            if (watchdog.hasFired()) {
+                throw new TestTimeoutException("no response within " + timeoutMillis
+                    + " ms");
+            }
+            throw e;
+        } finally {
+            watchdog.cancel();
+        }
+    }
+
+    /**
+     * @return the number of requests this worker has answered so far
+     */
+    int getTasksRun() {
+        return this.tasksRun;
+    }
+
+    /**
+     * Shuts down the worker; closing its channel lets it exit cleanly, and it is killed
+     * (along with anything it started) if it is still running afterwards.
+     */
+    void close() {
+        this.channel.close();
+        Watchdog.killTree(this.process);
+    }
+}
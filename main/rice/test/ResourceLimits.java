@@ -0,0 +1,109 @@
+package main.rice.test;
+
+/**
+ * Limits on the resources that each Python process running implementation code may use,
+ * which the wrapper sets with setrlimit before running any of it. A test case that runs
+ * into a limit catches the implementation, and the limit it hit is recorded in place of
+ * its output (see OutputDigest.limitHit()). The memory, open file and process limits
+ * apply to the process as a whole, for as long as it runs; the CPU limit applies to each
+ * test case (and to importing the implementation) separately, so that a pooled worker
+ * isn't charged for the test cases it ran before.
+ */
+public class ResourceLimits {
+
+    /**
+     * No limits at all
+     */
+    public static final ResourceLimits NONE = new ResourceLimits(0, 0, 0, 0);
+
+    /**
+     * The largest address space a process may have, in bytes, or 0 for no limit
+     */
+    private final long memoryBytes;
+
+    /**
+     * The most CPU time a single test case may use, in seconds, or 0 for no limit
+     */
+    private final long cpuSeconds;
+
+    /**
+     * The most files a process may have open at once, or 0 for no limit
+     */
+    private final long openFiles;
+
+    /**
+     * The most processes (and threads) the user running the tests may have at once, or
+     * 0 for no limit
+     */
+    private final long processes;
+
+    /**
+     * Constructor for a ResourceLimits; a limit of 0 (or less) means no limit.
+     *
+     * @param memoryBytes the largest address space a process may have, in bytes; this
+     *                    includes the Python interpreter itself
+     * @param cpuSeconds  the most CPU time a single test case may use, in seconds
+     * @param openFiles   the most files a process may have open at once, including
+     *                    those the wrapper itself has open
+     * @param processes   the most processes the user running the tests may have at
+     *                    once; as with RLIMIT_NPROC, this counts every process and
+     *                    thread the user has, not just those of the test
+     */
+    public ResourceLimits(long memoryBytes, long cpuSeconds, long openFiles,
+        long processes) {
+        this.memoryBytes = Math.max(memoryBytes, 0);
+        this.cpuSeconds = Math.max(cpuSeconds, 0);
+        this.openFiles = Math.max(openFiles, 0);
+        this.processes = Math.max(processes, 0);
+    }
+
+    /**
+     * @return the largest address space a process may have, in bytes, or 0 for no
+     * limit
+     */
+    public long getMemoryBytes() {
+        return this.memoryBytes;
+    }
+
+    /**
+     * @return the most CPU time a single test case may use, in seconds, or 0 for no
+     * limit
+     */
+    public long getCpuSeconds() {
+        return this.cpuSeconds;
+    }
+
+    /**
+     * @return the most files a process may have open at once, or 0 for no limit
+     */
+    public long getOpenFiles() {
+        return this.openFiles;
+    }
+
+    /**
+     * @return the most processes the user running the tests may have at once, or 0 for
+     * no limit
+     */
+    public long getProcesses() {
+        return this.processes;
+    }
+
+    /**
+     * @return the limits as a Python tuple of (memory, cpu, open files, processes), in
+     * the order the wrapper expects them
+     */
+    String toPyTuple() {
+        return "(" + this.memoryBytes + ", " + this.cpuSeconds + ", " + this.openFiles
+            + ", " + this.processes + ")";
+    }
+
+    /**
+     * @return a description of the limits, which is also part of the result cache key
+     * of every test case, since the limits can change its result
+     */
+    @Override
+    public String toString() {
+        return "memory=" + this.memoryBytes + " cpu=" + this.cpuSeconds + " files="
+            + this.openFiles + " processes=" + this.processes;
+    }
+}
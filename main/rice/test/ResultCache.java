@@ -0,0 +1,276 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A persistent, content-addressed cache of test results, stored as one small file per
+ * entry under a directory on disk. Keys are hashes of everything that determines a
+ * result (see Tester), so an entry can never be stale; the cache only has to bound its
+ * size, which it does by evicting the least recently used entries once it holds more
+ * than a set number of them. A single cache directory may be shared by concurrent runs.
+ */
+public class ResultCache {
+
+    /**
+     * The fraction of the maximum number of entries that eviction trims the cache down
+     * to, so that evictions don't happen on every insertion once the cache is full
+     */
+    private static final double EVICTION_TARGET = 0.9;
+
+    /**
+     * The directory holding the cache entries
+     */
+    private final Path dir;
+
+    /**
+     * The maximum number of entries the cache may hold
+     */
+    private final int maxEntries;
+
+    /**
+     * The (approximate) number of entries currently in the cache
+     */
+    private int entries;
+
+    /**
+     * The number of lookups that found an entry
+     */
+    private int hits;
+
+    /**
+     * The number of lookups that found no entry
+     */
+    private int misses;
+
+    /**
+     * Constructor for a ResultCache; creates the cache directory if it doesn't exist,
+     * and counts the entries already in it.
+     *
+     * @param dir        the directory holding the cache entries
+     * @param maxEntries the maximum number of entries to keep
+     * @throws IOException if the cache directory cannot be created or read
+     */
+    public ResultCache(Path dir, int maxEntries) throws IOException {
+        this.dir = dir;
+        this.maxEntries = maxEntries;
+        Files.createDirectories(dir);
+        this.entries = this.listEntries().size();
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Computes a cache key (a hex-encoded SHA-256 digest) from a list of parts, which
+     * should together determine the cached value.
+     *
+     * @param parts the parts making up the key
+     * @return the cache key
+     */
+    public static String key(String... parts) {
+        MessageDigest digest = newDigest();
+        for (String part : parts) {
+            byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            // Prefix each part with its length, so that parts can't run into each other
+            digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ':');
+            digest.update(bytes);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Computes the hex-encoded SHA-256 digest of a file's contents.
+     *
+     * @param path the file to hash
+     * @return the digest of the file's contents
+     * @throws IOException if the file cannot be read
+     */
+    public static String hashFile(Path path) throws IOException {
+        return toHex(newDigest().digest(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Looks up an entry, marking it as recently used if it exists.
+     *
+     * @param key the key of the entry
+     * @return the cached value, or null if there is no entry for the key
+     */
+    public String get(String key) {
+        Path path = this.pathFor(key);
+        try {
+            String value = Files.readString(path, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            this.recordLookup(true);
+            return value;
+        } catch (IOException e) {
+            // No entry (or it was evicted by a concurrent run while we were reading it)
+            this.recordLookup(false);
+            return null;
+        }
+    }
+
+    /**
+     * Adds an entry to the cache, evicting the least recently used entries if the cache
+     * has grown too large. Entries are written atomically, so concurrent readers never
+     * see a partial value.
+     *
+     * @param key   the key of the entry
+     * @param value the value to cache
+     * @throws IOException if the entry cannot be written
+     */
+    public void put(String key, String value) throws IOException {
+        Path path = this.pathFor(key);
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), "entry", ".tmp");
+        Files.writeString(temp, value, StandardCharsets.UTF_8);
+        boolean replaced = Files.exists(path);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+
+        // Replacing an entry doesn't make the cache any larger
+        if (replaced) {
+            return;
+        }
+        boolean full;
+        synchronized (this) {
+            this.entries++;
+            full = this.entries > this.maxEntries;
+        }
+        if (full) {
+            this.evict();
+        }
+    }
+
+    /**
+     * @return the number of lookups that found an entry
+     */
+    public synchronized int getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of lookups that found no entry
+     */
+    public synchronized int getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns a summary of the lookups made so far.
+     *
+     * @return a string with the hit and miss counts
+     */
+    @Override
+    public synchronized String toString() {
+        return "ResultCache[hits=" + this.hits + ", misses=" + this.misses + "]";
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is comfortably below its
+     * maximum size.
+     *
+     * @throws IOException if the cache directory cannot be read
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> paths = this.listEntries();
+        paths.sort(Comparator.comparing(ResultCache::lastUsed));
+        int target = (int) (this.maxEntries * EVICTION_TARGET);
+        int toDelete = Math.max(paths.size() - target, 0);
+        for (int i = 0; i < toDelete; i++) {
+            Files.deleteIfExists(paths.get(i));
+        }
+        this.entries = paths.size() - toDelete;
+    }
+
+    /**
+     * Records the outcome of a lookup.
+     *
+     * @param hit whether the lookup found an entry
+     */
+    private synchronized void recordLookup(boolean hit) {
+        if (hit) {
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+    }
+
+    /**
+     * @param key the key of an entry
+     * @return the path of the file holding the entry; entries are spread over
+     * subdirectories named after the first two characters of their keys
+     */
+    private Path pathFor(String key) {
+        return this.dir.resolve(key.substring(0, 2)).resolve(key.substring(2));
+    }
+
+    /**
+     * @return the paths of all entries currently in the cache
+     * @throws IOException if the cache directory cannot be read
+     */
+    private List<Path> listEntries() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> subdirs = Files.newDirectoryStream(this.dir)) {
+            for (Path subdir : subdirs) {
+                if (!Files.isDirectory(subdir)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(subdir)) {
+                    for (Path path : files) {
+                        // Skip entries that are still being written
+                        if (!path.getFileName().toString().endsWith(".tmp")) {
+                            paths.add(path);
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    // Removed by a concurrent run, so there's nothing in it to count
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * @param path the path of an entry
+     * @return the time the entry was last used, or the epoch if it has been deleted
+     */
+    private static FileTime lastUsed(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * @return a new SHA-256 message digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param bytes the bytes to encode
+     * @return the lowercase hexadecimal encoding of the bytes
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
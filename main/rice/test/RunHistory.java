@@ -0,0 +1,220 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent record of past test runs on one assignment, kept in a single text file.
+ * For each test case (identified by its canonical form, so that the same test case is
+ * recognized however the base set was generated) it records how many implementation
+ * files it was run on and how many of them it caught. From these, Tester estimates each
+ * test case's catch rate, and runs the test cases most likely to catch a file first.
+ * For each implementation file (by name, so that a resubmission keeps its history) it
+ * records how long running every test case on it took most recently, from which Tester
+ * starts the slowest files first when testing several at once.
+ */
+public class RunHistory {
+
+    /**
+     * How many runs' worth of weight the prior rate is given when estimating a test
+     * case's catch rate, so that a test case with little history stays close to it
+     */
+    private static final double PRIOR_WEIGHT = 2;
+
+    /**
+     * The catch rate assumed for every test case when there is no history at all
+     */
+    static final double DEFAULT_RATE = 0.5;
+
+    /**
+     * The file the history is kept in
+     */
+    private final Path file;
+
+    /**
+     * The number of files each test case has been run on, by test case key
+     */
+    private final Map<String, Long> runs;
+
+    /**
+     * The number of files each test case has caught, by test case key
+     */
+    private final Map<String, Long> catches;
+
+    /**
+     * The time (in nanoseconds) that testing each implementation file took most
+     * recently, by file key
+     */
+    private final Map<String, Long> fileTimes;
+
+    /**
+     * Constructor for a RunHistory; loads the history from the given file if it exists,
+     * and starts an empty history otherwise.
+     *
+     * @param file the file the history is kept in
+     * @throws IOException if the file exists but cannot be read or is malformed
+     */
+    public RunHistory(Path file) throws IOException {
+        this.file = file;
+        this.runs = new HashMap<>();
+        this.catches = new HashMap<>();
+        this.fileTimes = new HashMap<>();
+        if (Files.exists(file)) {
+            this.load();
+        }
+    }
+
+    /**
+     * Computes the key under which a test case's history is kept.
+     *
+     * @param test the test case
+     * @return the key for the test case
+     */
+    static String key(TestCase test) {
+        return ResultCache.key("test", test.toCanonicalString());
+    }
+
+    /**
+     * Computes the key under which an implementation file's history is kept.
+     *
+     * @param filename the name of the implementation file
+     * @return the key for the file
+     */
+    static String fileKey(String filename) {
+        return ResultCache.key("file", filename);
+    }
+
+    /**
+     * Estimates the rate at which each of the given test cases catches implementation
+     * files: the fraction of files it has caught so far, smoothed towards the rate of
+     * every test case together (or DEFAULT_RATE if there is no history), so that a test
+     * case with no history gets that rate.
+     *
+     * @param tests the test cases
+     * @return an array where the i-th element is the estimated catch rate of the i-th
+     * test case, between 0 and 1
+     */
+    public synchronized double[] getCatchRates(List<TestCase> tests) {
+        long totalRuns = 0;
+        long totalCatches = 0;
+        for (String key : this.runs.keySet()) {
+            totalRuns += this.runs.get(key);
+            totalCatches += this.catches.get(key);
+        }
+        double prior = totalRuns == 0 ? DEFAULT_RATE : (double) totalCatches / totalRuns;
+
+        double[] rates = new double[tests.size()];
+        for (int i = 0; i < rates.length; i++) {
+            String key = key(tests.get(i));
+            rates[i] = (this.catches.getOrDefault(key, 0L) + PRIOR_WEIGHT * prior)
+                / (this.runs.getOrDefault(key, 0L) + PRIOR_WEIGHT);
+        }
+        return rates;
+    }
+
+    /**
+     * Records that a test case was run on some number of files, and caught some of them.
+     *
+     * @param test    the test case
+     * @param runs    the number of files it was run on
+     * @param catches the number of those files it caught
+     */
+    synchronized void record(TestCase test, long runs, long catches) {
+        String key = key(test);
+        this.runs.merge(key, runs, Long::sum);
+        this.catches.merge(key, catches, Long::sum);
+    }
+
+    /**
+     * Gets the time that testing an implementation file took most recently.
+     *
+     * @param filename the name of the implementation file
+     * @return the time in nanoseconds, or null if the file has no history
+     */
+    synchronized Long getFileTime(String filename) {
+        return this.fileTimes.get(fileKey(filename));
+    }
+
+    /**
+     * @return the median of the times that testing each implementation file took most
+     * recently, in nanoseconds, or null if no file has a history
+     */
+    synchronized Long getMedianFileTime() {
+        if (this.fileTimes.isEmpty()) {
+            return null;
+        }
+        List<Long> times = new ArrayList<>(this.fileTimes.values());
+        times.sort(null);
+        return times.get(times.size() / 2);
+    }
+
+    /**
+     * Records how long testing an implementation file took, replacing any earlier time.
+     *
+     * @param filename the name of the implementation file
+     * @param nanos    the time in nanoseconds
+     */
+    synchronized void recordFileTime(String filename, long nanos) {
+        this.fileTimes.put(fileKey(filename), nanos);
+    }
+
+    /**
+     * Writes the history to its file, one "test key runs catches" line per test case
+     * and one "file key nanos" line per implementation file.
+     * The file is replaced atomically, so a concurrent reader never sees it
+     * half-written.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        List<String> keys = new ArrayList<>(this.runs.keySet());
+        keys.sort(null);
+        for (String key : keys) {
+            sb.append("test ").append(key).append(' ').append(this.runs.get(key))
+                .append(' ').append(this.catches.get(key)).append('\n');
+        }
+        keys = new ArrayList<>(this.fileTimes.keySet());
+        keys.sort(null);
+        for (String key : keys) {
+            sb.append("file ").append(key).append(' ').append(this.fileTimes.get(key))
+                .append('\n');
+        }
+
+        Path dir = this.file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, "history", ".tmp");
+        Files.writeString(temp, sb.toString(), StandardCharsets.UTF_8);
+        Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the history from its file, as written by save().
+     *
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    private void load() throws IOException {
+        for (String line : Files.readAllLines(this.file, StandardCharsets.UTF_8)) {
+            String[] parts = line.split(" ");
+            try {
+                if (parts.length == 4 && parts[0].equals("test")) {
+                    this.runs.put(parts[1], Long.parseLong(parts[2]));
+                    this.catches.put(parts[1], Long.parseLong(parts[3]));
+                } else if (parts.length == 3 && parts[0].equals("file")) {
+                    this.fileTimes.put(parts[1], Long.parseLong(parts[2]));
+                } else {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("malformed history line in " + this.file + ": "
+                    + line);
+            }
+        }
+    }
+}
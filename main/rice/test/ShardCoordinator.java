@@ -0,0 +1,286 @@
+package main.rice.test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the test matrix of a Tester into shards (ranges of implementation files, by
+ * index), hands them out to ShardWorkers through a work queue in a shared directory
+ * (see ShardQueue), and merges the results that come back into a single TestResults.
+ * The workers can run on any machine that can see the directory, or be started on this
+ * machine by runLocal(). A shard whose worker stops showing signs of life is handed out
+ * again.
+ */
+public class ShardCoordinator {
+
+    /**
+     * How often the queue is checked for finished shards
+     */
+    static final long POLL_MILLIS = 200;
+
+    /**
+     * How long local workers are given to exit by themselves once the job is done
+     */
+    private static final long EXIT_MILLIS = 5000;
+
+    /**
+     * The Tester whose test matrix is split into shards
+     */
+    private final Tester tester;
+
+    /**
+     * The work queue
+     */
+    private final ShardQueue queue;
+
+    /**
+     * The number of implementation files in each shard
+     */
+    private final int shardSize;
+
+    /**
+     * How long a worker may go without touching its shard before the shard is handed out
+     * again, in milliseconds
+     */
+    private long leaseMillis;
+
+    /**
+     * Constructor for a ShardCoordinator.
+     *
+     * @param tester    the Tester whose test matrix is split into shards; its expected
+     *                  results must already have been computed
+     * @param queueDir  the directory to create the work queue in, which must be empty
+     *                  or not exist yet
+     * @param shardSize the number of implementation files in each shard
+     */
+    public ShardCoordinator(Tester tester, Path queueDir, int shardSize) {
+        this.tester = tester;
+        this.queue = new ShardQueue(queueDir);
+        this.shardSize = Math.max(shardSize, 1);
+        this.leaseMillis = 60000;
+    }
+
+    /**
+     * Sets how long a worker may go without showing signs of life before its shard is
+     * handed out again; defaults to one minute. Workers show signs of life several times
+     * per lease, so this only needs to allow for clock skew and slow file systems.
+     *
+     * @param leaseMillis the length of the lease, in milliseconds
+     */
+    public void setLeaseMillis(long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Publishes the shards to the work queue, waits until workers (started elsewhere)
+     * have run all of them, and merges their results. Once every shard has finished,
+     * the workers are told to exit.
+     *
+     * @return the results of testing every implementation file, as runTests() would
+     * return
+     * @throws IOException if the queue cannot be accessed or the results are malformed
+     */
+    public TestResults run() throws IOException {
+        List<String> filenames = this.tester.getImplFilenames();
+        List<String> shards = this.publish(filenames);
+        try {
+            // Wait for every shard to finish, handing out those of dead workers again
+            while (!this.allFinished(shards)) {
+                this.requeueStale();
+                try {
+                    Thread.sleep(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(
+                        "interrupted while waiting for shards");
+                }
+            }
+        } finally {
+            this.markDone();
+        }
+
+        // Merge the results of every shard
+        List<ImplResult> fileResults = new ArrayList<>();
+        for (int i = 0; i < filenames.size(); i++) {
+            fileResults.add(null);
+        }
+        for (String shard : shards) {
+            this.queue.readResults(shard, fileResults);
+        }
+        if (fileResults.contains(null)) {
+            throw new IOException("the shards did not cover every implementation file");
+        }
+        this.tester.recordHistory(filenames, fileResults, false);
+        return this.tester.collectResults(fileResults, false);
+    }
+
+    /**
+     * Starts the given number of ShardWorkers on this machine, each in its own JVM with
+     * the same class path as this one, and then runs the job as run() does. This stands
+     * in for a cluster, using exactly the same protocol.
+     *
+     * @param numWorkers the number of workers to start
+     * @return the results of testing every implementation file
+     * @throws IOException if a worker cannot be started, the queue cannot be accessed or
+     *                     the results are malformed
+     */
+    public TestResults runLocal(int numWorkers) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(this.queue.getDir().toAbsolutePath().toString());
+
+        List<Process> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < numWorkers; i++) {
+                ProcessBuilder pb = new ProcessBuilder(command);
+                pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+                workers.add(pb.start());
+            }
+            return this.run();
+        } finally {
+            // The workers exit by themselves once they see that the job is done; any
+            // that don't are killed
+            this.markDone();
+            for (Process worker : workers) {
+                try {
+                    if (!worker.waitFor(EXIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        Watchdog.killTree(worker);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Watchdog.killTree(worker);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the work queue and publishes the job and its shards to it.
+     *
+     * @param filenames the names of every implementation file, in sorted order
+     * @return the names of the shards
+     * @throws IOException if the queue cannot be created
+     */
+    private List<String> publish(List<String> filenames) throws IOException {
+        // Start from an empty queue, so that nothing is left over from another job
+        Files.createDirectories(this.queue.getDir());
+        try (DirectoryStream<Path> entries =
+            Files.newDirectoryStream(this.queue.getDir())) {
+            if (entries.iterator().hasNext()) {
+                throw new IOException("queue directory " + this.queue.getDir()
+                    + " is not empty");
+            }
+        }
+        Files.createDirectories(this.queue.getPendingDir());
+        Files.createDirectories(this.queue.getClaimedDir());
+        Files.createDirectories(this.queue.getResultsDir());
+        Files.createDirectories(this.queue.getStagingDir());
+
+        // Publish the job; the settings go last, as workers wait for them
+        long[] expectedDigests = this.tester.getExpectedDigests();
+        if (expectedDigests == null) {
+            throw new IOException("the expected results have not been computed");
+        }
+        this.queue.writeExpected(expectedDigests);
+        this.tester.writeCases(this.queue.getTestsFile());
+        Properties job = new Properties();
+        job.setProperty("funcName", this.tester.getFuncName());
+        job.setProperty("solutionPath", this.tester.getSolutionPath());
+        job.setProperty("mode", this.tester.getExecutionMode().name());
+        job.setProperty("transport", this.tester.getTransport().name());
+        job.setProperty("parallelism", String.valueOf(this.tester.getParallelism()));
+        job.setProperty("concurrencyCeiling",
+            String.valueOf(this.tester.getConcurrencyCeiling()));
+        job.setProperty("timeoutMillis", String.valueOf(this.tester.getTestTimeout()));
+        job.setProperty("leaseMillis", String.valueOf(this.leaseMillis));
+        ResourceLimits limits = this.tester.getResourceLimits();
+        job.setProperty("memoryLimit", String.valueOf(limits.getMemoryBytes()));
+        job.setProperty("cpuLimit", String.valueOf(limits.getCpuSeconds()));
+        job.setProperty("openFilesLimit", String.valueOf(limits.getOpenFiles()));
+        job.setProperty("processLimit", String.valueOf(limits.getProcesses()));
+        StringWriter jobText = new StringWriter();
+        job.store(jobText, null);
+        this.queue.writeAtomically(this.queue.getJobFile(),
+            jobText.toString().getBytes(StandardCharsets.UTF_8));
+
+        // Publish each shard, copying its files in before making it visible
+        List<String> shards = new ArrayList<>();
+        Path implDir = Path.of(this.tester.getImplDirPath());
+        for (int first = 0; first < filenames.size(); first += this.shardSize) {
+            String shard = String.format("%s%08d", ShardQueue.SHARD_PREFIX, first);
+            Path staged = this.queue.getStagingDir().resolve(shard);
+            Files.createDirectory(staged);
+            int end = Math.min(first + this.shardSize, filenames.size());
+            for (String filename : filenames.subList(first, end)) {
+                Path target = staged.resolve(filename);
+                Files.createDirectories(target.getParent());
+                Files.copy(implDir.resolve(filename), target);
+            }
+            Files.move(staged, this.queue.getPendingDir().resolve(shard),
+                StandardCopyOption.ATOMIC_MOVE);
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    /**
+     * Determines whether every shard has finished.
+     *
+     * @param shards the names of the shards
+     * @return true if every shard's results have been written; false otherwise
+     */
+    private boolean allFinished(List<String> shards) {
+        for (String shard : shards) {
+            if (!Files.exists(this.queue.getResultsFile(shard))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands out again every shard that hasn't finished and whose worker hasn't touched
+     * it within the lease.
+     *
+     * @throws IOException if the queue cannot be accessed
+     */
+    private void requeueStale() throws IOException {
+        long cutoff = System.currentTimeMillis() - this.leaseMillis;
+        try (DirectoryStream<Path> claims =
+            Files.newDirectoryStream(this.queue.getClaimedDir())) {
+            for (Path claim : claims) {
+                String name = claim.getFileName().toString();
+                String shard = name.substring(0, name.indexOf('@'));
+                try {
+                    if (Files.getLastModifiedTime(claim).toMillis() >= cutoff
+                        || Files.exists(this.queue.getResultsFile(shard))) {
+                        continue;
+                    }
+                    Files.move(claim, this.queue.getPendingDir().resolve(shard),
+                        StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    // The worker finished (and removed its claim) in the meantime
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells the workers to exit once there is nothing left to run.
+     *
+     * @throws IOException if the queue cannot be accessed
+     */
+    private void markDone() throws IOException {
+        if (Files.isDirectory(this.queue.getDir())
+            && !Files.exists(this.queue.getDoneFile())) {
+            Files.createFile(this.queue.getDoneFile());
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package main.rice.test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The layout of a work queue in a shared directory, through which a ShardCoordinator
+ * hands shards of the test matrix to ShardWorkers. Every step is either an atomic
+ * rename or the creation of a file that is written elsewhere first and then renamed
+ * into place, so nothing is ever seen half-written:
+ * <ul>
+ *     <li>tests.bin, expected.txt and job.properties describe the job: the encoded
+ *     test cases (in the same format as cases.bin), the digests of the expected results
+ *     (one per line), and the settings that every worker tests with.</li>
+ *     <li>pending/shard-N is a shard waiting to be run; it holds a copy of the
+ *     implementation files whose indices start at N.</li>
+ *     <li>claimed/shard-N@worker is a shard being run by the named worker, which
+ *     touches it regularly to show that it's still alive.</li>
+ *     <li>results/shard-N.txt holds the results of a finished shard, one line per
+ *     file.</li>
+ *     <li>done tells the workers to exit once there is nothing left to run.</li>
+ * </ul>
+ */
+class ShardQueue {
+
+    /**
+     * The prefix of every shard's name, which is followed by the index of its first file
+     */
+    static final String SHARD_PREFIX = "shard-";
+
+    /**
+     * The root of the queue
+     */
+    private final Path dir;
+
+    /**
+     * Constructor for a ShardQueue.
+     *
+     * @param dir the root of the queue
+     */
+    ShardQueue(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return the root of the queue
+     */
+    Path getDir() {
+        return this.dir;
+    }
+
+    /**
+     * @return the file holding the encoded test cases
+     */
+    Path getTestsFile() {
+        return this.dir.resolve("tests.bin");
+    }
+
+    /**
+     * @return the file holding the digests of the expected results
+     */
+    Path getExpectedFile() {
+        return this.dir.resolve("expected.txt");
+    }
+
+    /**
+     * @return the file holding the settings of the job
+     */
+    Path getJobFile() {
+        return this.dir.resolve("job.properties");
+    }
+
+    /**
+     * @return the directory of shards waiting to be run
+     */
+    Path getPendingDir() {
+        return this.dir.resolve("pending");
+    }
+
+    /**
+     * @return the directory of shards being run
+     */
+    Path getClaimedDir() {
+        return this.dir.resolve("claimed");
+    }
+
+    /**
+     * @return the directory of the results of finished shards
+     */
+    Path getResultsDir() {
+        return this.dir.resolve("results");
+    }
+
+    /**
+     * @return the directory in which files are written before being renamed into place
+     */
+    Path getStagingDir() {
+        return this.dir.resolve("staging");
+    }
+
+    /**
+     * @return the file telling the workers to exit once there is nothing left to run
+     */
+    Path getDoneFile() {
+        return this.dir.resolve("done");
+    }
+
+    /**
+     * Gets the file holding the results of a shard.
+     *
+     * @param shard the name of the shard
+     * @return the results file
+     */
+    Path getResultsFile(String shard) {
+        return this.getResultsDir().resolve(shard + ".txt");
+    }
+
+    /**
+     * Gets the index of a shard's first file, which is part of its name.
+     *
+     * @param shard the name of the shard, optionally followed by "@worker"
+     * @return the index of the shard's first file
+     */
+    static int getFirstIndex(String shard) {
+        int end = shard.indexOf('@');
+        return Integer.parseInt(
+            shard.substring(SHARD_PREFIX.length(), end < 0 ? shard.length() : end));
+    }
+
+    /**
+     * Writes a file by writing it to the staging directory and then renaming it into
+     * place, so that readers never see it half-written.
+     *
+     * @param target the file to write
+     * @param bytes  the contents of the file
+     * @throws IOException if the file cannot be written
+     */
+    void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path temp = Files.createTempFile(this.getStagingDir(), "write-", ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes the digests of the expected results, one per line.
+     *
+     * @param digests the digest of the expected result of each test case
+     * @throws IOException if the file cannot be written
+     */
+    void writeExpected(long[] digests) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (long digest : digests) {
+            sb.append(OutputDigest.format(digest)).append('\n');
+        }
+        this.writeAtomically(this.getExpectedFile(),
+            sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the digests of the expected results, as written by writeExpected().
+     *
+     * @param path the file to read
+     * @return the digest of the expected result of each test case
+     * @throws IOException if the file cannot be read
+     */
+    static long[] readExpected(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        long[] digests = new long[lines.size()];
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = OutputDigest.parse(lines.get(i));
+        }
+        return digests;
+    }
+
+    /**
+     * Writes the results of a shard, one line per file: its index, the test cases that
+     * caught it, the test cases that timed out on it, with each list of test cases
+     * comma-separated (or "-" if empty), and its behavior signature, with the digest
+     * for each test case comma-separated (or "-" if there are no test cases).
+     *
+     * @param shard       the name of the shard
+     * @param fileResults the results of testing each of the shard's files, in order
+     * @param numTests    the number of test cases
+     * @throws IOException if the results cannot be written
+     */
+    void writeResults(String shard, List<ImplResult> fileResults, int numTests)
+        throws IOException {
+        int firstIndex = getFirstIndex(shard);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fileResults.size(); i++) {
+            ImplResult fileResult = fileResults.get(i);
+            sb.append(firstIndex + i).append(' ')
+                .append(formatIndices(fileResult.getCaughtBy())).append(' ')
+                .append(formatIndices(fileResult.getTimedOut())).append(' ')
+                .append(formatSignature(fileResult.getSignature(numTests)))
+                .append('\n');
+        }
+        this.writeAtomically(this.getResultsFile(shard),
+            sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the results of a shard into the given list, as written by writeResults().
+     *
+     * @param shard       the name of the shard
+     * @param fileResults a list where the i-th element is the results of testing the
+     *                    i-th file, into which the shard's results are put
+     * @throws IOException if the results cannot be read or are malformed
+     */
+    void readResults(String shard, List<ImplResult> fileResults) throws IOException {
+        for (String line : Files.readAllLines(this.getResultsFile(shard),
+            StandardCharsets.UTF_8)) {
+            String[] parts = line.split(" ");
+            if (parts.length != 4) {
+                throw new IOException("malformed results line in " + shard + ": " + line);
+            }
+            ImplResult fileResult = new ImplResult();
+            fileResult.getCaughtBy().addAll(parseIndices(parts[1]));
+            for (int testIndex : parseIndices(parts[2])) {
+                fileResult.addTimeout(testIndex);
+            }
+            String[] digests = parts[3].equals("-") ? new String[0] : parts[3].split(",");
+            for (int testIndex = 0; testIndex < digests.length; testIndex++) {
+                long digest = Long.parseUnsignedLong(digests[testIndex], 16);
+                if (digest != OutputDigest.NOT_RUN && digest != OutputDigest.TIMEOUT) {
+                    fileResult.addOutput(testIndex, digest);
+                }
+            }
+            fileResults.set(Integer.parseInt(parts[0]), fileResult);
+        }
+    }
+
+    /**
+     * Reads the test cases from a file written by Tester.writeCases().
+     *
+     * @param path the file to read
+     * @return the test cases
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    static List<TestCase> readTests(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(path)))) {
+            int count = in.readInt();
+            List<TestCase> tests = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                byte[] encodedArgs = new byte[in.readInt()];
+                in.readFully(encodedArgs);
+                tests.add(TestCase.decodeArgs(encodedArgs));
+            }
+            return tests;
+        }
+    }
+
+    /**
+     * Formats a set of test case indices for a results line.
+     *
+     * @param indices the indices to format
+     * @return the sorted, comma-separated indices, or "-" if there are none
+     */
+    private static String formatIndices(Set<Integer> indices) {
+        if (indices.isEmpty()) {
+            return "-";
+        }
+        List<String> parts = new ArrayList<>();
+        for (int index : new TreeSet<>(indices)) {
+            parts.add(String.valueOf(index));
+        }
+        return String.join(",", parts);
+    }
+
+    /**
+     * Formats a behavior signature for a results line.
+     *
+     * @param signature the signature to format
+     * @return the comma-separated digests, in hexadecimal, or "-" if there are none
+     */
+    private static String formatSignature(long[] signature) {
+        if (signature.length == 0) {
+            return "-";
+        }
+        List<String> parts = new ArrayList<>();
+        for (long digest : signature) {
+            parts.add(Long.toHexString(digest));
+        }
+        return String.join(",", parts);
+    }
+
+    /**
+     * Parses a set of test case indices from a results line, as formatted by
+     * formatIndices().
+     *
+     * @param text the text to parse
+     * @return the indices
+     */
+    private static Set<Integer> parseIndices(String text) {
+        Set<Integer> indices = new HashSet<>();
+        if (!text.equals("-")) {
+            for (String part : text.split(",")) {
+                indices.add(Integer.parseInt(part));
+            }
+        }
+        return indices;
+    }
+}
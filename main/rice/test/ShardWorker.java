@@ -0,0 +1,284 @@
+package main.rice.test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs shards of a test matrix handed out by a ShardCoordinator through a work queue in
+ * a shared directory (see ShardQueue). A worker claims one pending shard at a time,
+ * tests its implementation files with its own Tester, writes the results back to the
+ * queue and moves on to the next shard, until the coordinator says the job is done.
+ * Any number of workers, on any number of machines, can serve the same queue. A shard
+ * that fails is handed back to the queue for any worker to try again.
+ */
+public class ShardWorker {
+
+    /**
+     * The number of shards a worker may fail before it gives up
+     */
+    private static final int MAX_FAILURES = 3;
+
+    /**
+     * The work queue
+     */
+    private final ShardQueue queue;
+
+    /**
+     * The directory under which per-shard workspaces are created, or null to use the
+     * system default
+     */
+    private final Path workspaceRoot;
+
+    /**
+     * The name of this worker, which is unique across every machine serving the queue
+     */
+    private final String workerId;
+
+    /**
+     * The settings of the job, once they have been published
+     */
+    private Properties job;
+
+    /**
+     * The test cases of the job, once they have been published
+     */
+    private List<TestCase> tests;
+
+    /**
+     * The number of shards this worker has failed so far
+     */
+    private int failures;
+
+    /**
+     * Constructor for a ShardWorker.
+     *
+     * @param queueDir      the root of the work queue
+     * @param workspaceRoot the directory under which per-shard workspaces are created,
+     *                      or null to use the system default
+     */
+    public ShardWorker(Path queueDir, Path workspaceRoot) {
+        this.queue = new ShardQueue(queueDir);
+        this.workspaceRoot = workspaceRoot;
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        this.workerId = host + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Runs a worker on the given queue until the job is done.
+     *
+     * @param args the root of the work queue, optionally followed by the directory under
+     *             which per-shard workspaces are created (e.g. /dev/shm)
+     * @throws IOException if the queue cannot be accessed or a shard cannot be run
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: ShardWorker <queueDir> [<workspaceRoot>]");
+            System.exit(2);
+        }
+        Path workspaceRoot = args.length > 1 ? Path.of(args[1]) : null;
+        new ShardWorker(Path.of(args[0]), workspaceRoot).run();
+    }
+
+    /**
+     * Claims and runs shards until none are pending and the coordinator has said that
+     * the job is done. A shard that fails is handed back and the error reported, until
+     * the worker has failed MAX_FAILURES shards.
+     *
+     * @throws IOException if the queue cannot be accessed, or MAX_FAILURES shards
+     *                     cannot be run
+     */
+    public void run() throws IOException {
+        while (true) {
+            // Wait for the job to be published
+            if (this.job == null && Files.exists(this.queue.getJobFile())) {
+                this.loadJob();
+            }
+
+            // Run a pending shard, if there is one
+            Path claim = this.job == null ? null : this.claim();
+            if (claim != null) {
+                try {
+                    this.runShard(claim);
+                } catch (IOException e) {
+                    if (++this.failures >= MAX_FAILURES) {
+                        throw e;
+                    }
+                    System.err.println(this.workerId + ": failed to run "
+                        + claim.getFileName() + ", handing it back: " + e);
+                }
+                continue;
+            }
+
+            // Otherwise, exit if the job is done, or wait for more work
+            if (Files.exists(this.queue.getDoneFile())) {
+                return;
+            }
+            try {
+                Thread.sleep(ShardCoordinator.POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for shards");
+            }
+        }
+    }
+
+    /**
+     * Reads the settings and test cases of the job.
+     *
+     * @throws IOException if they cannot be read
+     */
+    private void loadJob() throws IOException {
+        Properties job = new Properties();
+        try (Reader in = Files.newBufferedReader(this.queue.getJobFile())) {
+            job.load(in);
+        }
+        this.tests = ShardQueue.readTests(this.queue.getTestsFile());
+        this.job = job;
+    }
+
+    /**
+     * Claims a pending shard by renaming it into the claimed directory; only one worker
+     * can succeed in renaming each shard.
+     *
+     * @return the claimed shard, or null if no shard is pending
+     * @throws IOException if the queue cannot be accessed
+     */
+    private Path claim() throws IOException {
+        List<Path> pending = new ArrayList<>();
+        try (DirectoryStream<Path> shards =
+            Files.newDirectoryStream(this.queue.getPendingDir())) {
+            for (Path shard : shards) {
+                pending.add(shard);
+            }
+        }
+        Collections.sort(pending);
+
+        for (Path shard : pending) {
+            Path claim = this.queue.getClaimedDir()
+                .resolve(shard.getFileName() + "@" + this.workerId);
+            try {
+                Files.move(shard, claim, StandardCopyOption.ATOMIC_MOVE);
+                Files.setLastModifiedTime(claim, FileTime.fromMillis(
+                    System.currentTimeMillis()));
+                return claim;
+            } catch (NoSuchFileException e) {
+                // Another worker claimed it first
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tests every implementation file of a claimed shard and writes the results to the
+     * queue, touching the claim regularly so that the coordinator knows this worker is
+     * still alive. The claim is only removed once the results have been written; if
+     * anything fails, the shard is moved back to the pending directory instead.
+     *
+     * @param claim the claimed shard
+     * @throws IOException if the shard cannot be run or its results cannot be written
+     */
+    private void runShard(Path claim) throws IOException {
+        String name = claim.getFileName().toString();
+        String shard = name.substring(0, name.indexOf('@'));
+        long leaseMillis = Long.parseLong(this.job.getProperty("leaseMillis"));
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+        heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                Files.setLastModifiedTime(claim, FileTime.fromMillis(
+                    System.currentTimeMillis()));
+            } catch (IOException e) {
+                // The claim has been handed out again; the results will just be
+                // written twice
+            }
+        }, leaseMillis / 4, leaseMillis / 4, TimeUnit.MILLISECONDS);
+
+        // Copy the files out of the queue, so that Python reads them locally
+        Path implDir = null;
+        boolean finished = false;
+        try {
+            implDir = this.workspaceRoot == null
+                ? Files.createTempDirectory("shard-")
+                : Files.createTempDirectory(this.workspaceRoot, "shard-");
+            List<Path> files;
+            try (var walk = Files.walk(claim)) {
+                files = walk.filter(Files::isRegularFile).toList();
+            }
+            for (Path file : files) {
+                Path target = implDir.resolve(claim.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target);
+            }
+
+            // Test them with the same settings as the coordinator
+            List<ImplResult> fileResults;
+            try (Tester tester = new Tester(this.job.getProperty("funcName"),
+                this.job.getProperty("solutionPath"), implDir.toString(), this.tests)) {
+                tester.setExecutionMode(
+                    ExecutionMode.valueOf(this.job.getProperty("mode")));
+                tester.setTransport(
+                    Transport.valueOf(this.job.getProperty("transport")));
+                tester.setParallelism(
+                    Integer.parseInt(this.job.getProperty("parallelism")));
+                tester.setConcurrencyCeiling(
+                    Integer.parseInt(this.job.getProperty("concurrencyCeiling")));
+                tester.setTimeout(Long.parseLong(this.job.getProperty("timeoutMillis")));
+                tester.setResourceLimits(new ResourceLimits(
+                    Long.parseLong(this.job.getProperty("memoryLimit")),
+                    Long.parseLong(this.job.getProperty("cpuLimit")),
+                    Long.parseLong(this.job.getProperty("openFilesLimit")),
+                    Long.parseLong(this.job.getProperty("processLimit"))));
+                if (this.workspaceRoot != null) {
+                    tester.setWorkspaceRoot(this.workspaceRoot);
+                }
+                tester.setExpectedDigests(
+                    ShardQueue.readExpected(this.queue.getExpectedFile()));
+                tester.createHarnessFiles();
+                try (WorkerPool pool = tester.startPool()) {
+                    fileResults = tester.testFiles(tester.getImplFilenames(), pool);
+                }
+            }
+            this.queue.writeResults(shard, fileResults, this.tests.size());
+            finished = true;
+        } finally {
+            heartbeat.shutdownNow();
+            if (implDir != null) {
+                Tester.deleteTree(implDir);
+            }
+            if (finished) {
+                if (Files.exists(claim)) {
+                    Tester.deleteTree(claim);
+                }
+            } else {
+                this.release(claim, shard);
+            }
+        }
+    }
+
+    /**
+     * Hands a claimed shard back by renaming it into the pending directory, so that any
+     * worker can claim it again.
+     *
+     * @param claim the claimed shard
+     * @param shard the name of the shard
+     */
+    private void release(Path claim, String shard) {
+        try {
+            Files.move(claim, this.queue.getPendingDir().resolve(shard),
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Either the coordinator has already handed it out again, or the claim is
+            // left for its lease to run out, after which the coordinator does
+        }
+    }
+}
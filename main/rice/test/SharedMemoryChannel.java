@@ -0,0 +1,239 @@
+package main.rice.test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A WorkerChannel that passes frames through a file memory-mapped by both the JVM and
+ * the Python process, rather than through pipes.
+ * <p>
+ * The file holds two single-producer, single-consumer ring buffers: the first carries
+ * requests to the process, and the second carries responses back. Each ring starts
+ * with its head (the total number of bytes consumed so far) and its tail (the total
+ * number of bytes produced so far), both 8 bytes, followed by RING_BYTES of data;
+ * positions wrap around modulo RING_BYTES. Each message in a ring is a 4-byte length
+ * followed by the frame itself, exactly as PipeChannel would send it (see PyWorker).
+ * All integers are big-endian. Only the consumer moves the head, and only the producer
+ * moves the tail.
+ * <p>
+ * The pipes serve as the doorbell: after placing a message in a ring, the producer
+ * writes a single "R" to the pipe, on which the consumer blocks. A message that
+ * doesn't fit in its ring is instead announced with a "P" and sent whole through the
+ * pipe, as PipeChannel would. Java can't reach a futex or an eventfd, and reading and
+ * writing the pipe also orders every access to the ring between the two processes.
+ * <p>
+ * On start-up, the path of the file is sent to the process as a request frame through
+ * the pipe.
+ */
+class SharedMemoryChannel implements WorkerChannel {
+
+    /**
+     * The number of data bytes in each ring
+     */
+    static final int RING_BYTES = 256 * 1024;
+
+    /**
+     * The number of bytes before the data of each ring, holding its head and tail
+     */
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * The offset of the ring carrying requests
+     */
+    private static final int REQUESTS = 0;
+
+    /**
+     * The offset of the ring carrying responses
+     */
+    private static final int RESPONSES = HEADER_BYTES + RING_BYTES;
+
+    /**
+     * The memory-mapped file holding both rings
+     */
+    private final Path file;
+
+    /**
+     * The mapping of the file
+     */
+    private final MappedByteBuffer ring;
+
+    /**
+     * The stream over which doorbells (and messages too large for the ring) are sent to
+     * the process
+     */
+    private final DataOutputStream requests;
+
+    /**
+     * The stream over which doorbells (and messages too large for the ring) are read
+     * back from the process
+     */
+    private final DataInputStream responses;
+
+    /**
+     * Constructor for a SharedMemoryChannel; creates and maps the file, and sends its
+     * path to the process.
+     *
+     * @param process the Python process to talk to, which must have been started with
+     *                the --shm flag
+     * @param dir     the directory to create the file in, ideally on a tmpfs mount
+     * @throws IOException if the file cannot be created or mapped, or the process has
+     *                     gone away
+     */
+    SharedMemoryChannel(Process process, Path dir) throws IOException {
+        this.requests = new DataOutputStream(
+            new BufferedOutputStream(process.getOutputStream()));
+        this.responses = new DataInputStream(
+            new BufferedInputStream(process.getInputStream()));
+
+        // A new file is all zeros, so both rings start out empty
+        this.file = Files.createTempFile(dir, "ring-", ".bin");
+        try (FileChannel channel = FileChannel.open(this.file,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * RESPONSES);
+        } catch (IOException e) {
+            Files.deleteIfExists(this.file);
+            throw e;
+        }
+
+        PipeChannel.writeRequest(this.requests, List.of(this.file.toString()),
+            new byte[0]);
+        this.requests.flush();
+    }
+
+    /**
+     * Places the request frame in the request ring, or sends it through the pipe if it
+     * doesn't fit, and rings the doorbell.
+     *
+     * @param header  the text fields making up the request
+     * @param payload the binary payload of the request
+     * @throws IOException if the process has gone away
+     */
+    @Override
+    public void send(List<String> header, byte[] payload) throws IOException {
+        List<byte[]> fields = new ArrayList<>();
+        int size = 4;
+        for (String field : header) {
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            fields.add(bytes);
+            size += 4 + bytes.length;
+        }
+        size += 4 + payload.length;
+
+        long head = this.ring.getLong(REQUESTS);
+        long tail = this.ring.getLong(REQUESTS + 8);
+        if (tail - head + 4 + size > RING_BYTES) {
+            this.requests.write('P');
+            PipeChannel.writeRequest(this.requests, header, payload);
+            this.requests.flush();
+            return;
+        }
+
+        // Write the message where the process will find it, then publish it
+        long pos = this.putInt(REQUESTS, tail, size);
+        pos = this.putInt(REQUESTS, pos, fields.size() + 1);
+        for (byte[] bytes : fields) {
+            pos = this.putInt(REQUESTS, pos, bytes.length);
+            pos = this.put(REQUESTS, pos, bytes);
+        }
+        pos = this.putInt(REQUESTS, pos, payload.length);
+        pos = this.put(REQUESTS, pos, payload);
+        this.ring.putLong(REQUESTS + 8, pos);
+        this.requests.write('R');
+        this.requests.flush();
+    }
+
+    /**
+     * Waits for the doorbell, and takes the response out of the response ring (or reads
+     * it from the pipe, if that's where it was sent).
+     *
+     * @return the response
+     * @throws IOException if the process has gone away
+     */
+    @Override
+    public String receive() throws IOException {
+        int doorbell = this.responses.read();
+        if (doorbell == 'P') {
+            return PipeChannel.readResponse(this.responses);
+        }
+        if (doorbell != 'R') {
+            throw new EOFException("the worker process has gone away");
+        }
+
+        long head = this.ring.getLong(RESPONSES);
+        byte[] size = new byte[4];
+        this.get(RESPONSES, head, size);
+        byte[] response = new byte[ByteBuffer.wrap(size).getInt()];
+        this.get(RESPONSES, head + 4, response);
+        this.ring.putLong(RESPONSES, head + 4 + response.length);
+        return new String(response, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Closes the process's stdin, which lets it exit cleanly, and deletes the file; the
+     * mapping itself goes away once it is garbage collected.
+     */
+    @Override
+    public void close() {
+        try {
+            this.requests.close();
+        } catch (IOException e) {
+            // The process has already gone away, so there's nothing left to tell it
+        }
+        try {
+            Files.deleteIfExists(this.file);
+        } catch (IOException e) {
+            // It is in the Tester's workspace, which is deleted on close anyway
+        }
+    }
+
+    /**
+     * Writes a big-endian integer into a ring, wrapping around its end if need be.
+     *
+     * @param base  the offset of the ring
+     * @param pos   the position to write at, before wrapping
+     * @param value the integer to write
+     * @return the position after the integer
+     */
+    private long putInt(int base, long pos, int value) {
+        return this.put(base, pos, new byte[] {(byte) (value >>> 24),
+            (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+    }
+
+    /**
+     * Writes bytes into a ring, wrapping around its end if need be.
+     *
+     * @param base the offset of the ring
+     * @param pos  the position to write at, before wrapping
+     * @param data the bytes to write
+     * @return the position after the bytes
+     */
+    private long put(int base, long pos, byte[] data) {
+        int start = (int) (pos % RING_BYTES);
+        int first = Math.min(data.length, RING_BYTES - start);
+        this.ring.put(base + HEADER_BYTES + start, data, 0, first);
+        this.ring.put(base + HEADER_BYTES, data, first, data.length - first);
+        return pos + data.length;
+    }
+
+    /**
+     * Reads bytes out of a ring, wrapping around its end if need be.
+     *
+     * @param base the offset of the ring
+     * @param pos  the position to read at, before wrapping
+     * @param data the array to fill with the bytes
+     */
+    private void get(int base, long pos, byte[] data) {
+        int start = (int) (pos % RING_BYTES);
+        int first = Math.min(data.length, RING_BYTES - start);
+        this.ring.get(base + HEADER_BYTES + start, data, 0, first);
+        this.ring.get(base + HEADER_BYTES, data, first, data.length - first);
+    }
+}
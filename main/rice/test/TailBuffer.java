@@ -0,0 +1,84 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-size buffer that keeps only the most recent bytes written to it, so that the
+ * output of a process can be drained in full while only its tail is kept in memory.
+ */
+class TailBuffer {
+
+    /**
+     * The underlying circular buffer
+     */
+    private final byte[] buffer;
+
+    /**
+     * The total number of bytes that have been written to the buffer, including those
+     * that have since been overwritten
+     */
+    private long written;
+
+    /**
+     * Constructor for a TailBuffer.
+     *
+     * @param capacity the number of most recent bytes to keep
+     */
+    TailBuffer(int capacity) {
+        this.buffer = new byte[capacity];
+        this.written = 0;
+    }
+
+    /**
+     * Reads the given stream until it is exhausted, keeping only the last capacity bytes
+     * read, and then closes the stream.
+     *
+     * @param in the stream to read
+     * @throws IOException if the stream cannot be read
+     */
+    void drain(InputStream in) throws IOException {
+        byte[] chunk = new byte[8192];
+        int count;
+        while ((count = in.read(chunk)) != -1) {
+            // Only the last capacity bytes of the chunk can survive
+            int skip = Math.max(count - this.buffer.length, 0);
+            this.written += skip;
+            for (int offset = skip; offset < count; ) {
+                // Copy as much as fits before wrapping around to the front
+                int position = (int) (this.written % this.buffer.length);
+                int length = Math.min(count - offset, this.buffer.length - position);
+                System.arraycopy(chunk, offset, this.buffer, position, length);
+                offset += length;
+                this.written += length;
+            }
+        }
+        in.close();
+    }
+
+    /**
+     * Returns the last line of the output kept in the buffer (ignoring a trailing line
+     * terminator), or the empty string if there was no output.
+     *
+     * @return the last line of the output
+     */
+    String lastLine() {
+        // Unroll the circular buffer into the order the bytes were written
+        int size = (int) Math.min(this.written, this.buffer.length);
+        byte[] tail = new byte[size];
+        for (int i = 0; i < size; i++) {
+            tail[i] = this.buffer[(int) ((this.written - size + i) % this.buffer.length)];
+        }
+        String output = new String(tail, StandardCharsets.UTF_8);
+
+        // Drop the final line terminator, then keep whatever follows the one before it
+        if (output.endsWith("\n")) {
+            output = output.substring(0, output.length() - 1);
+        }
+        if (output.endsWith("\r")) {
+            output = output.substring(0, output.length() - 1);
+        }
+        return output.substring(output.lastIndexOf('\n') + 1);
+    }
+}
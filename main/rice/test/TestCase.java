@@ -2,6 +2,12 @@ package main.rice.test;
 
 import main.rice.obj.APyObj;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -41,6 +47,57 @@ public class TestCase {
         return this.args.toString();
     }
 
+    /**
+     * Returns a canonical string representation of this test's arguments, which is
+     * identical for any two test cases that are equal by value.
+     *
+     * @return a canonical string representation of this test's arguments
+     */
+    public String toCanonicalString() {
+        List<String> args = new ArrayList<>();
+        for (APyObj arg : this.args) {
+            args.add(arg.toCanonicalString());
+        }
+        return "[" + String.join(", ", args) + "]";
+    }
+
+    /**
+     * Builds a binary encoding of this test's arguments, from which the test harness
+     * rebuilds them as Python objects: a 4-byte (big-endian) count of arguments,
+     * followed by the encoding of each argument (see APyObj.encode()).
+     *
+     * @return the encoding of this test's arguments
+     * @throws IOException if the arguments cannot be encoded
+     */
+    public byte[] encodeArgs() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(this.args.size());
+        for (APyObj arg : this.args) {
+            arg.encode(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rebuilds a test case from the binary encoding of its arguments, as built by
+     * encodeArgs().
+     *
+     * @param encodedArgs the encoding of the test case's arguments
+     * @return the test case
+     * @throws IOException if the bytes don't hold a valid encoding
+     */
+    public static TestCase decodeArgs(byte[] encodedArgs) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedArgs));
+        int count = in.readInt();
+        List<APyObj> args = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            args.add(APyObj.decode(in));
+        }
+        return new TestCase(args);
+    }
+
     /**
      * Compares this test's arguments to the input object's arguments (if it's a TestCase)
      * by value.
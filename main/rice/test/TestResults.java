@@ -1,5 +1,7 @@
 package main.rice.test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -28,7 +30,28 @@ public class TestResults {
     private Set<Integer> wrongSet;
 
     /**
-     * Constructor for a TestResults object; initializes all fields.
+     * A list where the i-th element is the set of integers representing the indices of
+     * the files on which the i-th test case in allCases ran out of time. Every such file
+     * is also counted as caught by that test case in caseToFiles.
+     */
+    private List<Set<Integer>> caseToTimeouts;
+
+    /**
+     * Whether the per-case data (caseToFiles and caseToTimeouts) is partial, because not
+     * every test case was run on every file; wrongSet is complete either way
+     */
+    private boolean partial;
+
+    /**
+     * A list where the i-th element is the behavior signature of the i-th file: the
+     * digest of its output on each test case in allCases (see OutputDigest), or null if
+     * none was kept for that file
+     */
+    private List<long[]> signatures;
+
+    /**
+     * Constructor for a TestResults object; initializes all fields, with no test cases
+     * having timed out.
      *
      * @param allCases    all test cases that were executed
      * @param caseToFiles a list where the i-th element is a set of integers representing
@@ -37,9 +60,80 @@ public class TestResults {
      */
     public TestResults(List<TestCase> allCases, List<Set<Integer>> caseToFiles,
         Set<Integer> wrongSet) {
+        this(allCases, caseToFiles, wrongSet, new ArrayList<>());
+        for (int i = 0; i < caseToFiles.size(); i++) {
+            this.caseToTimeouts.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * Constructor for a TestResults object; initializes all fields.
+     *
+     * @param allCases       all test cases that were executed
+     * @param caseToFiles    a list where the i-th element is a set of integers
+     *                       representing the files that were caught by the i-th test
+     *                       case in allCases
+     * @param wrongSet       the set of all files that failed one or more tests in
+     *                       allCases
+     * @param caseToTimeouts a list where the i-th element is a set of integers
+     *                       representing the files on which the i-th test case in
+     *                       allCases ran out of time
+     */
+    public TestResults(List<TestCase> allCases, List<Set<Integer>> caseToFiles,
+        Set<Integer> wrongSet, List<Set<Integer>> caseToTimeouts) {
+        this(allCases, caseToFiles, wrongSet, caseToTimeouts, false);
+    }
+
+    /**
+     * Constructor for a TestResults object; initializes all fields, including whether
+     * the per-case data is partial.
+     *
+     * @param allCases       all test cases that were executed
+     * @param caseToFiles    a list where the i-th element is a set of integers
+     *                       representing the files that were caught by the i-th test
+     *                       case in allCases
+     * @param wrongSet       the set of all files that failed one or more tests in
+     *                       allCases
+     * @param caseToTimeouts a list where the i-th element is a set of integers
+     *                       representing the files on which the i-th test case in
+     *                       allCases ran out of time
+     * @param partial        whether caseToFiles and caseToTimeouts only hold the results
+     *                       of the test cases that were actually run, rather than of
+     *                       every test case on every file
+     */
+    public TestResults(List<TestCase> allCases, List<Set<Integer>> caseToFiles,
+        Set<Integer> wrongSet, List<Set<Integer>> caseToTimeouts, boolean partial) {
+        this(allCases, caseToFiles, wrongSet, caseToTimeouts, partial, new ArrayList<>());
+    }
+
+    /**
+     * Constructor for a TestResults object; initializes all fields, including the
+     * behavior signature of each file.
+     *
+     * @param allCases       all test cases that were executed
+     * @param caseToFiles    a list where the i-th element is a set of integers
+     *                       representing the files that were caught by the i-th test
+     *                       case in allCases
+     * @param wrongSet       the set of all files that failed one or more tests in
+     *                       allCases
+     * @param caseToTimeouts a list where the i-th element is a set of integers
+     *                       representing the files on which the i-th test case in
+     *                       allCases ran out of time
+     * @param partial        whether caseToFiles and caseToTimeouts only hold the results
+     *                       of the test cases that were actually run, rather than of
+     *                       every test case on every file
+     * @param signatures     a list where the i-th element is the behavior signature of
+     *                       the i-th file, or null if there is none
+     */
+    public TestResults(List<TestCase> allCases, List<Set<Integer>> caseToFiles,
+        Set<Integer> wrongSet, List<Set<Integer>> caseToTimeouts, boolean partial,
+        List<long[]> signatures) {
         this.allCases = allCases;
         this.caseToFiles = caseToFiles;
         this.wrongSet = wrongSet;
+        this.caseToTimeouts = caseToTimeouts;
+        this.partial = partial;
+        this.signatures = signatures;
     }
 
     /**
@@ -71,4 +165,46 @@ public class TestResults {
     public List<Set<Integer>> getCaseToFiles() {
         return this.caseToFiles;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the per-case list of files on which that case ran out of time
+     * (represented by indices)
+     */
+    public List<Set<Integer>> getCaseToTimeouts() {
+        return this.caseToTimeouts;
+    }
+
+    /**
+     * @return true if the per-case data only holds the results of the test cases that
+     * were actually run (so a file missing from a test case's set may not have been run
+     * on it); false if every test case was run on every file
+     */
+    public boolean isPartial() {
+        return this.partial;
+    }
+
+    /**
+     * @return the per-file list of behavior signatures
+     */
+    public List<long[]> getSignatures() {
+        return this.signatures;
+    }
+
+    /**
+     * Returns the behavior signature of a file: the digest of its output on each test
+     * case, with OutputDigest.TIMEOUT for test cases that ran out of time on it,
+     * OutputDigest.ERROR for those on which it raised an exception,
+     * OutputDigest.NO_OUTPUT for those whose process died before reporting back, and
+     * OutputDigest.NOT_RUN for those that weren't run on it. Two files with the same
+     * signature behaved identically on every test case that was run on both.
+     *
+     * @param fileIndex the index of the file
+     * @return the file's signature, or null if none was kept for it
+     */
+    public long[] getSignature(int fileIndex) {
+        if (fileIndex < 0 || fileIndex >= this.signatures.size()) {
+            return null;
+        }
+        return this.signatures.get(fileIndex);
+    }
+}
@@ -0,0 +1,128 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A session for running individual test cases on individual implementation files, for
+ * callers that decide which cells of the results to fill in as they go rather than
+ * running every test case on every file. Cells are run one at a time: on the pool's
+ * workers in POOL mode, and in fresh processes otherwise (batch and fork-server
+ * execution only pay off when every test case is run on a file). Cached results are
+ * used and stored as in Tester.runTests().
+ */
+public class TestSession implements AutoCloseable {
+
+    /**
+     * The Tester that runs each cell
+     */
+    private final Tester tester;
+
+    /**
+     * The names of the implementation files, in sorted order; each one's position in
+     * this list is its index
+     */
+    private final List<String> filenames;
+
+    /**
+     * The pool of workers to run the cells on, or null to start a fresh process for
+     * every cell
+     */
+    private final WorkerPool pool;
+
+    /**
+     * The result cache keys of each file that has been tested so far (see
+     * Tester.getTestKeys()), which are null if there is no result cache
+     */
+    private final Map<Integer, List<String>> keys;
+
+    /**
+     * The number of cells whose results have been asked for so far
+     */
+    private int cellsRun;
+
+    /**
+     * Constructor for a TestSession; the harness files must already exist.
+     *
+     * @param tester    the Tester that runs each cell
+     * @param filenames the names of the implementation files, in sorted order
+     * @param pool      the pool of workers to run the cells on, or null to start a fresh
+     *                  process for every cell
+     */
+    TestSession(Tester tester, List<String> filenames, WorkerPool pool) {
+        this.tester = tester;
+        this.filenames = filenames;
+        this.pool = pool;
+        this.keys = new HashMap<>();
+        this.cellsRun = 0;
+    }
+
+    /**
+     * @return the names of the implementation files, in sorted order
+     */
+    public List<String> getImplFilenames() {
+        return this.filenames;
+    }
+
+    /**
+     * @return the list of test cases that can be run
+     */
+    public List<TestCase> getTests() {
+        return this.tester.getTests();
+    }
+
+    /**
+     * @return the indices of the test cases, in the order in which the Tester's run
+     * history says they should be tried (see Tester.getTestSchedule())
+     */
+    public List<Integer> getTestSchedule() {
+        return this.tester.getTestSchedule();
+    }
+
+    /**
+     * @return an array where the i-th element is the rate at which the Tester's run
+     * history says the i-th test case catches files (see Tester.getCatchRates())
+     */
+    public double[] getCatchRates() {
+        return this.tester.getCatchRates();
+    }
+
+    /**
+     * Runs a single test case on a single implementation file.
+     *
+     * @param testIndex the index of the test case
+     * @param fileIndex the index of the implementation file
+     * @return true if the test case caught the file (by failing or running out of
+     * time); false if the file passed
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    public boolean catches(int testIndex, int fileIndex) throws IOException {
+        String filename = this.filenames.get(fileIndex);
+        if (!this.keys.containsKey(fileIndex)) {
+            this.keys.put(fileIndex, this.tester.getTestKeys(filename));
+        }
+        List<String> fileKeys = this.keys.get(fileIndex);
+
+        this.cellsRun++;
+        return !this.tester.testCell(filename, testIndex,
+            fileKeys == null ? null : fileKeys.get(testIndex), this.pool)
+            .getCaughtBy().isEmpty();
+    }
+
+    /**
+     * @return the number of cells whose results have been asked for so far
+     */
+    public int getCellsRun() {
+        return this.cellsRun;
+    }
+
+    /**
+     * Shuts down the session's workers, if there are any.
+     */
+    @Override
+    public void close() {
+        if (this.pool != null) {
+            this.pool.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package main.rice.test;
+
+import java.io.IOException;
+
+/**
+ * An exception for indicating that a test case did not finish within its time budget,
+ * and that the process running it was killed.
+ */
+class TestTimeoutException extends IOException {
+
+    /**
+     * Constructor for a TestTimeoutException; takes as its input a single String
+     * containing more details about the test that timed out.
+     *
+     * @param msg the error message
+     */
+    TestTimeoutException(String msg) {
+        super(msg);
+    }
+}
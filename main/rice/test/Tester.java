@@ -1,9 +1,15 @@
 package main.rice.test;
 
-import main.rice.obj.APyObj;
-
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A class for running a test suite. Encapsulates the ability to run the test suite on a
@@ -11,8 +17,26 @@ import java.util.*;
  * "wrapper" file for comparing actual results to these expected results, and the ability
  * to run the test suite on a set of files and identify which test cases each file fails
  * on.
+ * <p>
+ * Everything a Tester generates (the wrapper, the expected results and Python's
+ * bytecode caches) goes into a private temporary workspace rather than next to the
+ * solution or the implementations, which are never modified. Several Testers can
+ * therefore run on the same inputs at the same time. The workspace is deleted when the
+ * Tester is closed.
  */
-public class Tester {
+public class Tester implements AutoCloseable {
+
+    /**
+     * The number of bytes at the end of a test process's output that are kept; anything
+     * printed before that is read and thrown away
+     */
+    private static final int OUTPUT_TAIL_BYTES = 64 * 1024;
+
+    /**
+     * Included in every result cache key; must be changed whenever the meaning of a
+     * cached result changes, so that results cached by older versions are never used
+     */
+    private static final String CACHE_VERSION = "3";
 
     /**
      * The name of the function under test
@@ -35,6 +59,154 @@ public class Tester {
      */
     private List<TestCase> tests;
 
+    /**
+     * How test cases are executed through Python
+     */
+    private ExecutionMode mode;
+
+    /**
+     * How requests and responses travel between this Tester and its long-lived Python
+     * processes
+     */
+    private Transport transport;
+
+    /**
+     * The number of worker processes to use when mode is POOL
+     */
+    private int poolSize;
+
+    /**
+     * The number of test cases after which a pooled worker is replaced by a fresh one;
+     * 0 means workers are never replaced
+     */
+    private int recycleAfter;
+
+    /**
+     * The maximum number of implementation files that are tested at the same time
+     */
+    private int parallelism;
+
+    /**
+     * The most implementation files that may be tested at the same time once the
+     * number is adjusted as a run goes, or 0 if it is fixed at parallelism
+     */
+    private int concurrencyCeiling;
+
+    /**
+     * The number of Python processes that the reference solution is run in at the same
+     * time when computing the expected results
+     */
+    private int referenceWorkers;
+
+    /**
+     * The time (in nanoseconds) that the reference solution took on each test case, as
+     * measured by the most recent call to computeExpectedResults()
+     */
+    private List<Long> expectedTimes;
+
+    /**
+     * The digest of the reference solution's output on each test case (see
+     * OutputDigest), against which the output of every implementation is compared, or
+     * null if the expected results haven't been computed yet
+     */
+    private long[] expectedDigests;
+
+    /**
+     * A fixed time budget for each test case, in milliseconds; 0 means the budget is
+     * derived from the reference solution's timings instead
+     */
+    private long timeoutMillis;
+
+    /**
+     * The multiple of the reference solution's slowest test case that each test case is
+     * allowed to take, when the budget is derived from the reference timings
+     */
+    private double timeoutMultiplier;
+
+    /**
+     * The time added on top of the derived budget, in milliseconds, so that fast test
+     * cases aren't killed by scheduling noise or interpreter startup
+     */
+    private long timeoutFloorMillis;
+
+    /**
+     * The cache of expected results and pass/fail results, or null if results aren't
+     * cached
+     */
+    private ResultCache resultCache;
+
+    /**
+     * The hash of the solution file's contents, computed when first needed for a cache
+     * key
+     */
+    private String solutionHash;
+
+    /**
+     * The directory in which workspaces are created, or null for the system's default
+     * temporary directory
+     */
+    private Path workspaceRoot;
+
+    /**
+     * The limits on the resources that each Python process running implementation code
+     * may use
+     */
+    private ResourceLimits resourceLimits;
+
+    /**
+     * The directory in which Python keeps compiled bytecode across runs, or null to keep
+     * it in the workspace for the lifetime of this Tester
+     */
+    private Path bytecodeCache;
+
+    /**
+     * The implementation files that failed to compile or import when last checked; each
+     * counts as caught by every test case without being run
+     */
+    private final Set<String> brokenFiles;
+
+    /**
+     * The fingerprint of each implementation file's source when it was last checked,
+     * which is the same for files that differ only in comments and whitespace
+     */
+    private final Map<String, String> fingerprints;
+
+    /**
+     * Whether only one file of each group of files with the same fingerprint is tested,
+     * with its results used for every file in the group
+     */
+    private boolean deduplicate;
+
+    /**
+     * The history of past runs, from which the order of the test cases is chosen and to
+     * which each run's results are added, or null if there is none
+     */
+    private RunHistory runHistory;
+
+    /**
+     * The position of each test case in the order in which test cases are run, computed
+     * from the run history when first needed, or null if it hasn't been yet
+     */
+    private int[] testRanks;
+
+    /**
+     * The predicted and actual makespan of the last set of files tested, or null if no
+     * files have been tested yet
+     */
+    private MakespanReport makespanReport;
+
+    /**
+     * The temporary directory holding the files generated by this Tester, or null if it
+     * hasn't been created yet
+     */
+    private Path workspace;
+
+    /**
+     * The binary encoding of each test case's arguments (see TestCase.encodeArgs()),
+     * built when first needed so that each test case is only encoded once
+     */
+    private List<byte[]> encodedArgs;
+
     /**
      * Constructor for a Tester, which initializes all of the fields using the given
      * inputs.
@@ -52,315 +224,2647 @@ public class Tester {
         this.implDirPath = implDirPath;
         this.solutionPath = solutionPath;
         this.tests = tests;
+        this.mode = ExecutionMode.PROCESS_PER_TEST;
+        this.transport = Transport.PIPE;
+        this.poolSize = Runtime.getRuntime().availableProcessors();
+        this.recycleAfter = 1000;
+        this.parallelism = 1;
+        this.referenceWorkers = Runtime.getRuntime().availableProcessors();
+        this.expectedTimes = new ArrayList<>();
+        this.timeoutMillis = 0;
+        this.timeoutMultiplier = 10;
+        this.timeoutFloorMillis = 2000;
+        this.brokenFiles = ConcurrentHashMap.newKeySet();
+        this.fingerprints = new ConcurrentHashMap<>();
+        this.deduplicate = true;
+        this.resourceLimits = ResourceLimits.NONE;
     }
 
     /**
-     * Computes the expected results by running each test case on the solution file.
-     * Stores the results in a list (which is returned) and also creates a .py file
-     * containing an equivalent list of the results.
+     * Sets how test cases are executed through Python; defaults to PROCESS_PER_TEST.
      *
-     * @return a list where the i-th element is the result (a string) of running the i-th
-     * test case on the reference solution
-     * @throws IOException if the path to the solution is invalid
+     * @param mode the execution mode to use
      */
-    public List<String> computeExpectedResults() throws IOException {
-        // Write an appropriate footer to the solution file to make it executable from
-        // the command-line, if the footer doesn't exist already
-        this.appendToSolution();
-
-        // Run each test case on the solution file and gather the results in a map
-        List<String> results = new ArrayList<>();
-        for (int i = 0; i < this.tests.size(); i++) {
-            List<String> args = this.getExpTestArgs(i);
-            String result = this.runTestHelper(args);
-            results.add(result);
-        }
-
-        // Write the expected results to a .py file, so that they can be accessed via
-        // the wrapper. These cached results allow us to only run the solution once per
-        // test rather than having to run it once per test per buggy implementation.
-        this.outputExpectedResults(results);
+    public void setExecutionMode(ExecutionMode mode) {
+        this.mode = mode;
+    }
 
-        // Return the results
-        return results;
+    /**
+     * Sets how requests and responses travel between this Tester and its long-lived
+     * Python processes, i.e. the workers in POOL mode and the fork servers in
+     * FORK_SERVER mode; defaults to PIPE. With SHARED_MEMORY, each process gets a ring
+     * buffer in a file in the workspace, so pointing the workspace at a tmpfs mount
+     * (see setWorkspaceRoot()) keeps it in memory.
+     *
+     * @param transport the transport to use
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
     }
 
     /**
-     * Runs all tests on all files in the directory of buggy implementations, comparing
-     * the outputs to the pre-generated expected results and returning the results in the
-     * form of a TestResults object.
+     * Sets the number of worker processes used in POOL mode; defaults to the number of
+     * available processors.
      *
-     * @return the results of testing
-     * @throws IOException if the path to the directory of buggy implementations is
-     *                     invalid
+     * @param poolSize the number of worker processes
      */
-    public TestResults runTests() throws IOException {
-        // Create the wrapper file
-        this.createWrapperFile();
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
 
-        // Initialize the outputs
-        List<Set<Integer>> caseToFiles = new ArrayList<>();
-        for (int i = 0; i < this.tests.size(); i++) {
-            caseToFiles.add(new HashSet<>());
-        }
-        Set<Integer> wrongSet = new HashSet<>();
+    /**
+     * Sets the number of test cases after which a pooled worker is replaced by a fresh
+     * process, limiting how long state leaked by the code under test can build up;
+     * defaults to 1000.
+     *
+     * @param recycleAfter the number of test cases per worker, or 0 to never replace
+     *                     workers
+     */
+    public void setRecycleAfter(int recycleAfter) {
+        this.recycleAfter = recycleAfter;
+    }
 
-        // Get the list of all files in the input directory
-        var dir = new File(this.implDirPath);
-        String[] filenames = dir.list();
-        if (filenames == null) {
-            throw new IOException("Error: implDir is empty");
-        }
-        Arrays.sort(filenames);
+    /**
+     * Sets the maximum number of implementation files that are tested at the same time
+     * (or, with a concurrency ceiling, the number to start from); defaults to 1 (one
+     * file at a time). The results are the same regardless of the parallelism. In POOL
+     * mode, the pool size also bounds the number of test cases that actually run at
+     * once.
+     *
+     * @param parallelism the maximum number of files to test at once
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
 
-        // If implDirPath didn't actually point to a directory, files would be null
-        int trueIndex = 0;
+    /**
+     * Lets the number of implementation files tested at the same time adjust itself as
+     * each run goes (see ConcurrencyController): it starts at the parallelism, backs
+     * off when test cases slow down, the system load climbs or memory runs low, and
+     * grows again while none of that happens, but never beyond the ceiling. Every
+     * change is logged in the run's report (see getMakespanReport()). By default (or if
+     * the ceiling is set to 0), the number is fixed at the parallelism.
+     *
+     * @param concurrencyCeiling the most files to test at once, or 0 to not adjust the
+     *                           number
+     */
+    public void setConcurrencyCeiling(int concurrencyCeiling) {
+        this.concurrencyCeiling = concurrencyCeiling;
+    }
 
-        // Test each individual file using all tests in the base test set
-        for (String filename : filenames) {
-            if (!filename.endsWith(".py") || filename.equals("wrapper.py")
-                || filename.equals("expected.py")) {
-                continue;
-            }
+    /**
+     * Sets the number of Python processes that the reference solution is run in at the
+     * same time when computing the expected results; defaults to the number of available
+     * processors. The test cases are split evenly between the processes, each of which
+     * runs its share as a single batch.
+     *
+     * @param referenceWorkers the number of processes
+     */
+    public void setReferenceWorkers(int referenceWorkers) {
+        this.referenceWorkers = referenceWorkers;
+    }
 
-            // Run each test case on this file, keeping track of which ones caught
-            // errors
-            HashSet<Integer> caughtBy = new HashSet<>();
-            for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
-                List<String> args = this.getTestArgs(testIndex, filename);
-                String result = this.runTestHelper(args);
-                if (!result.equals("True")) {
-                    caseToFiles.get(testIndex).add(trueIndex);
-                    caughtBy.add(testIndex);
-                }
-            }
+    /**
+     * Sets whether implementation files that differ only in comments and whitespace are
+     * tested once as a group, with the results of the first file in the group used for
+     * all of them; defaults to true. Grouped files can only behave differently if they
+     * inspect their own file names.
+     *
+     * @param deduplicate whether to test each group of equivalent files once
+     */
+    public void setDeduplication(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
 
-            // Add to wrongSet if applicable
-            if (caughtBy.size() > 0) {
-                wrongSet.add(trueIndex);
-            }
-            trueIndex++;
-        }
+    /**
+     * Sets a fixed wall-clock time budget for each test case. A test case that runs for
+     * longer is killed (along with any processes it started) and counts as catching the
+     * implementation. By default (or if the budget is set to 0), the budget is derived
+     * from the reference solution's timings; see setTimeoutScaling.
+     *
+     * @param timeoutMillis the time budget for each test case in milliseconds, or 0 to
+     *                      derive it from the reference timings
+     */
+    public void setTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
 
-        // Clean up the pycache that was created
-        this.deletePyCache();
+    /**
+     * Sets how the time budget for each test case is derived from the reference
+     * solution's timings: the budget is multiplier times the reference solution's
+     * slowest test case, plus floorMillis. Defaults to 10 times the slowest case plus 2
+     * seconds.
+     *
+     * @param multiplier  the multiple of the slowest reference test case to allow
+     * @param floorMillis the time added on top, in milliseconds
+     */
+    public void setTimeoutScaling(double multiplier, long floorMillis) {
+        this.timeoutMultiplier = multiplier;
+        this.timeoutFloorMillis = floorMillis;
+    }
 
-        // Return the results
-        return new TestResults(this.tests, caseToFiles, wrongSet);
+    /**
+     * Sets the limits on the resources that each Python process running implementation
+     * code may use (see ResourceLimits). A test case that runs into a limit catches the
+     * implementation, and the limit it hit takes the place of its output in the file's
+     * behavior signature (see OutputDigest.limitHit()). Takes effect the next time the
+     * harness files are created, which every run does. By default, there are no limits.
+     *
+     * @param resourceLimits the limits to apply, or null for no limits
+     */
+    public void setResourceLimits(ResourceLimits resourceLimits) {
+        this.resourceLimits =
+            resourceLimits == null ? ResourceLimits.NONE : resourceLimits;
     }
 
     /**
-     * Builds the list of command-line arguments for executing the solution in order to
-     * get the expected results on a single test case.
+     * Sets the cache used to look up results before running anything. The expected
+     * result of a test case is keyed by the contents of the solution, the name of the
+     * function under test and the (canonical) arguments of the test case; whether an
+     * implementation passes a test case is additionally keyed by the contents of the
+     * implementation. Test cases that time out are never cached. By default, nothing is
+     * cached.
      *
-     * @param testIndex the index of the test case to be run
-     * @return the command-line args for running the given test case through the solution
+     * @param resultCache the cache to use, or null to not cache results
      */
-    private List<String> getExpTestArgs(int testIndex) {
-        List<String> args = new ArrayList<>();
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
 
-        // The solution must be a python3 file
-        args.add("python3");
-        args.add(this.solutionPath);
+    /**
+     * Sets the history of past runs on this assignment. The test cases are then run in
+     * descending order of their catch rates in the history (see getTestSchedule()), and
+     * the results of every full or triage run are added to the history and saved. When
+     * several files are tested at once, the files that took longest in the last full run
+     * are started first (see getMakespanReport()). By default, there is no history, and
+     * test cases run in index order.
+     *
+     * @param runHistory the history to use, or null to not keep one
+     */
+    public synchronized void setRunHistory(RunHistory runHistory) {
+        this.runHistory = runHistory;
+        this.testRanks = null;
+    }
 
-        // Add each argument as a string; the footer will take care of converting these to
-        // Python objects before invoking the function under test
-        TestCase test = this.tests.get(testIndex);
-        for (APyObj arg : test.getArgs()) {
-            args.add(arg.toString());
-        }
-        return args;
+    /**
+     * Gets the predicted and actual makespan of the last set of files tested, i.e. the
+     * time from starting the first file to finishing the last one. When testing several
+     * files at once, the files are started longest first, with each file's time
+     * estimated from the run history: the time it took in the last full run, or the
+     * median time of every file in the history if it is new. The prediction is the
+     * makespan of that order given those estimates. Without any times in the history,
+     * the largest files are started first, and there is no prediction.
+     *
+     * @return the report, or null if no files have been tested yet
+     */
+    public synchronized MakespanReport getMakespanReport() {
+        return this.makespanReport;
     }
 
     /**
-     * Builds the list of command-line arguments for executing a buggy implementation in
-     * order to get the actual results on a single test case.
+     * Sets the directory in which this Tester's workspace is created; defaults to the
+     * system's default temporary directory. Pointing this at a tmpfs mount (such as
+     * /dev/shm) keeps the generated files and bytecode caches in memory. Only takes
+     * effect if the workspace hasn't been created yet.
      *
-     * @param testIndex the index of the test case to be run
-     * @param filename  the name of the implementation being tested
-     * @return the command-line args for running the given test case through the solution
+     * @param workspaceRoot the directory in which to create the workspace, or null for
+     *                      the system's default temporary directory
      */
-    private List<String> getTestArgs(int testIndex, String filename) {
-        List<String> args = new ArrayList<>();
+    public void setWorkspaceRoot(Path workspaceRoot) {
+        this.workspaceRoot = workspaceRoot;
+    }
 
-        // The implementation must be a python3 file
-        args.add("python3");
+    /**
+     * Sets a directory in which Python keeps the compiled bytecode of the solution and
+     * implementations across runs, so that files that haven't changed since an earlier
+     * run (by any Tester sharing the directory) are never compiled again. By default,
+     * bytecode is kept in the workspace and discarded when this Tester is closed.
+     * Either way, it is never written next to the files themselves. The bytecode is
+     * validated against a hash of each file's contents rather than its timestamp, so a
+     * file that changes can never be run from stale bytecode.
+     *
+     * @param bytecodeCache the directory in which to keep bytecode, or null to keep it
+     *                      in the workspace
+     */
+    public void setBytecodeCache(Path bytecodeCache) {
+        this.bytecodeCache = bytecodeCache;
+    }
 
-        // Directly invoking the wrapper, which will dynamically load the file under test
-        args.add(this.implDirPath + "/wrapper.py");
+    /**
+     * @return the time (in nanoseconds) that the reference solution took on each test
+     * case, as measured by the most recent call to computeExpectedResults()
+     */
+    public List<Long> getExpectedTimes() {
+        return this.expectedTimes;
+    }
 
-        // Need to include the index of the test case so that we can look up the expected
-        // results to determine whether the test passes or fails
-        args.add(String.valueOf(testIndex));
+    /**
+     * @return the digest of the reference solution's output on each test case, or null
+     * if the expected results haven't been computed yet
+     */
+    long[] getExpectedDigests() {
+        return this.expectedDigests;
+    }
 
-        // Also need to know which file we're testing and which function to invoke within
-        // the file under test
-        args.add(filename);
-        args.add(this.funcName);
+    /**
+     * Uses the expected results computed elsewhere (such as by another Tester with the
+     * same test cases) instead of computing them.
+     *
+     * @param expectedDigests the digest of the reference solution's output on each test
+     *                        case, as computed by computeExpectedResults()
+     */
+    void setExpectedDigests(long[] expectedDigests) {
+        this.expectedDigests = expectedDigests;
+    }
 
-        // Add each argument as a string; the footer will take care of converting these to
-        // Python objects before invoking the function under test
-        TestCase test = this.tests.get(testIndex);
-        for (APyObj arg : test.getArgs()) {
-            args.add(arg.toString());
+    /**
+     * Estimates the rate at which each test case catches implementation files, from the
+     * run history. Without a history, every test case gets the same rate.
+     *
+     * @return an array where the i-th element is the estimated catch rate of the i-th
+     * test case
+     */
+    public synchronized double[] getCatchRates() {
+        if (this.runHistory == null) {
+            double[] rates = new double[this.tests.size()];
+            Arrays.fill(rates, RunHistory.DEFAULT_RATE);
+            return rates;
         }
-        return args;
+        return this.runHistory.getCatchRates(this.tests);
     }
 
     /**
-     * A helper function for runTest and runExpTest which runs a Python process (using a
-     * list of arguments, as output by getTestArgs or getExpTestArgs) and reads its
-     * output.
+     * Gets the order in which test cases are run on each implementation file: in
+     * descending order of their estimated catch rates (see getCatchRates()), with ties
+     * going to the lower index. The test cases most likely to catch a file therefore
+     * run first, which makes triage stop sooner and the first results of any run the
+     * most informative.
      *
-     * @param args the arguments for the process to be created
-     * @throws IOException if the file to run or its output cannot be accessed
+     * @return the indices of the test cases, in the order in which they are run
      */
-    private String runTestHelper(List<String> args) throws IOException {
-        ProcessBuilder pb = new ProcessBuilder();
-        pb.command(args);
-        Process process = pb.start();
-
-        // Redirect the output of the process to here
-        var sb = new StringBuilder();
-        var reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-        // Wait until the process has exited
-        try {
-            process.waitFor();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    public List<Integer> getTestSchedule() {
+        int[] ranks = this.getTestRanks();
+        Integer[] schedule = new Integer[ranks.length];
+        for (int testIndex = 0; testIndex < ranks.length; testIndex++) {
+            schedule[ranks[testIndex]] = testIndex;
         }
+        return Arrays.asList(schedule);
+    }
 
-        // Read the output of the process, the last line of which should be the result
-        String line;
-        String prevLine = "";
-        while ((line = reader.readLine()) != null) {
-            prevLine = line;
+    /**
+     * @return an array where the i-th element is the position of the i-th test case in
+     * the schedule (see getTestSchedule()), computed on first use
+     */
+    private synchronized int[] getTestRanks() {
+        if (this.testRanks == null) {
+            double[] rates = this.getCatchRates();
+            List<Integer> schedule = new ArrayList<>();
+            for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
+                schedule.add(testIndex);
+            }
+            schedule.sort((a, b) -> Double.compare(rates[b], rates[a]));
+            int[] ranks = new int[schedule.size()];
+            for (int rank = 0; rank < schedule.size(); rank++) {
+                ranks[schedule.get(rank)] = rank;
+            }
+            this.testRanks = ranks;
         }
-        reader.close();
-
-        // Return the result
-        // Return the result
-        return prevLine;
+        return this.testRanks;
     }
 
     /**
-     * Creates a wrapper file that imports the expected results, reads the command-line
-     * args, dynamically imports the buggy implementation, generates the actual results
-     * for a single test case, compares the returned value to the expected value, and then
-     * returns a boolean value (True if test passes, False otherwise).
+     * Sorts test case indices into the order in which they are scheduled to run.
      *
-     * @throws IOException if the wrapper file cannot be created
+     * @param testIndices the indices of the test cases
+     * @return a new list of the same indices, in schedule order
      */
-    private void createWrapperFile() throws IOException {
-        StringBuilder sb = new StringBuilder();
-
-        // Import the expected results, plus the other modules we'll need
-        sb.append("import sys\nfrom importlib import import_module\nfrom expected " +
-            "import results\n\n");
-
-        // Function for comparing the buggy implementation's results to the
-        // pre-determined expected results
-        sb.append("def test_buggy_impl(case_num, impl_name, fname, args):\n");
-        sb.append("    mod_name = impl_name[:-3]\n");
-        sb.append("    mod = import_module(mod_name)\n");
-        sb.append("    func = getattr(mod, fname)\n");
-        sb.append("    actual = func(*args)\n");
-        sb.append("    expected = results[case_num]\n");
-        sb.append("    return (actual == expected)\n\n");
-
-        // Footer to make the function executable from the command line
-        sb.append("if __name__ == \"__main__\":\n");
-        sb.append("    case_num = int(sys.argv[1])\n");
-        sb.append("    impl_name = sys.argv[2]\n");
-        sb.append("    fname = sys.argv[3]\n");
-        sb.append("    args = sys.argv[4:]\n");
-        sb.append("    args = [eval(arg) for arg in args]\n");
-        sb.append("    print (test_buggy_impl(case_num, impl_name, fname, args))");
-        String wrapperContents = sb.toString();
-
-        // Create the Python wrapper file including the above code
-        FileWriter writer = new FileWriter(this.implDirPath + "/wrapper.py");
-        writer.write(wrapperContents);
-        writer.close();
+    private List<Integer> inScheduleOrder(List<Integer> testIndices) {
+        int[] ranks = this.getTestRanks();
+        List<Integer> ordered = new ArrayList<>(testIndices);
+        ordered.sort(Comparator.comparingInt(testIndex -> ranks[testIndex]));
+        return ordered;
     }
 
     /**
-     * Writes a footer to the solution file which converts the command-line args from
-     * strings into Python objects of the appropriate type, calls the function under test
-     * with arguments, and prints the result.
+     * Adds the results of a run to the run history, if there is one, and saves it. For
+     * each test case, this counts the files it was run on and those it caught; broken
+     * files are left out, as they say nothing about any test case. For each file of a
+     * full run, this also records how long testing it took, if that was measured and
+     * every test case was actually run on it: a file whose results came (even partly)
+     * from the result cache took only a fraction of its real time.
      *
-     * @throws IOException if the solution file cannot be accessed
+     * @param filenames   the names of the implementation files that were tested
+     * @param fileResults a list where the i-th element is the results of testing the
+     *                    i-th file
+     * @param partial     whether not every test case was run on every file, in which
+     *                    case the files' times aren't recorded
+     * @throws IOException if the history cannot be saved
      */
-    private void appendToSolution() throws IOException {
-        // Read the contents of the solution
-        StringBuilder sb = new StringBuilder();
-        BufferedReader br = new BufferedReader(new FileReader(this.solutionPath));
-        String line;
-        while ((line = br.readLine()) != null) {
-            sb.append(line).append("\n");
-        }
-        String contents = sb.toString();
-
-        // Generate the footer, which converts the command-line args from strings into
-        // Python objects of the appropriate types, calls the function under test with
-        // these arguments, and prints the result
-        sb = new StringBuilder();
-        sb.append("\nimport sys\n\n");
-        sb.append("if __name__ == \"__main__\":\n");
-        sb.append("    args = sys.argv[1:]\n");
-        sb.append("    new_args = [eval(arg) for arg in args]\n");
-        sb.append("    print (").append(this.funcName).append("(*new_args))");
-        String textToAdd = sb.toString();
+    void recordHistory(List<String> filenames, List<ImplResult> fileResults,
+        boolean partial) throws IOException {
+        RunHistory history;
+        synchronized (this) {
+            history = this.runHistory;
+            this.testRanks = null;
+        }
+        if (history == null) {
+            return;
+        }
 
-        // Don't add the footer twice, if we run this multiple times
-        if (!contents.contains(textToAdd)) {
-            FileWriter writer = new FileWriter(this.solutionPath, true);
-            writer.write(textToAdd);
-            writer.close();
+        long[] runs = new long[this.tests.size()];
+        long[] catches = new long[this.tests.size()];
+        for (int i = 0; i < filenames.size(); i++) {
+            if (this.brokenFiles.contains(filenames.get(i))) {
+                continue;
+            }
+            ImplResult fileResult = fileResults.get(i);
+            if (!partial && fileResult.getElapsedNanos() > 0
+                && fileResult.getCasesRun() == this.tests.size()) {
+                history.recordFileTime(filenames.get(i), fileResult.getElapsedNanos());
+            }
+            for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
+                if (fileResult.getOutputs().containsKey(testIndex)
+                    || fileResult.getTimedOut().contains(testIndex)) {
+                    runs[testIndex]++;
+                    if (fileResult.getCaughtBy().contains(testIndex)) {
+                        catches[testIndex]++;
+                    }
+                }
+            }
         }
+        for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
+            history.record(this.tests.get(testIndex), runs[testIndex],
+                catches[testIndex]);
+        }
+        history.save();
     }
 
     /**
-     * Outputs the expected results (given) to the file expected.py in the form of a
-     * Python list.
-     *
-     * @param results the per-case list of expected results
-     * @throws IOException if the results file cannot be created or written to
+     * @return the names of the implementation files that failed to compile or import
+     * when they were last checked, which count as caught by every test case without
+     * being run
      */
-    private void outputExpectedResults(List<String> results) throws IOException {
-        // Convert input results to Python list
-        String contents = "results = " + results.toString();
+    public Set<String> getBrokenFiles() {
+        return new TreeSet<>(this.brokenFiles);
+    }
 
-        // Output results to expected.py, within the implementation directory
-        FileWriter writer = new FileWriter(this.implDirPath + "/expected.py");
-        writer.write(contents);
-        writer.close();
+    /**
+     * Computes the time budget for each test case: either the fixed budget, if one was
+     * set, or a multiple of the reference solution's slowest test case plus a floor.
+     *
+     * @return the time budget for each test case, in milliseconds
+     */
+    public long getTestTimeout() {
+        if (this.timeoutMillis > 0) {
+            return this.timeoutMillis;
+        }
+        long slowest = 0;
+        for (long time : this.expectedTimes) {
+            slowest = Math.max(slowest, time);
+        }
+        return (long) (this.timeoutMultiplier * slowest / 1000000)
+            + this.timeoutFloorMillis;
     }
 
     /**
-     * Helper function for deleting all cached Python files, so that an old cached version
-     * of expected.pyc doesn't accidentally get invoked.
+     * Computes the expected results by running each test case on the solution file.
+     * Returns the repr of each result, and keeps the digest of each (see OutputDigest)
+     * to compare the output of every implementation against. The test cases are
+     * split into contiguous batches, each run in a single Python process, with up to
+     * referenceWorkers processes running at once. The time taken by each test case is
+     * measured inside Python, so that it excludes process startup, and is used to
+     * derive the time budget for testing the buggy implementations. If there is a
+     * result cache, cached results (and timings) are used instead of running the
+     * solution wherever possible.
      *
-     * @throws IOException if the path to the pycache is invalid or a deletion operation
-     *                     fails
+     * @return a list where the i-th element is the result (a string) of running the i-th
+     * test case on the reference solution
+     * @throws IOException if the path to the solution is invalid
      */
-    private void deletePyCache() throws IOException {
-        // Get the list of all files in the pycache
-        File pyCacheDir = new File(this.implDirPath + "/__pycache__/");
-        String[] filepaths = pyCacheDir.list();
+    public List<String> computeExpectedResults() throws IOException {
+        // The solution is run through the wrapper, which decodes each test case's
+        // arguments before calling the function under test
+        this.createWrapperFile();
+        this.compileSolution();
 
-        if (filepaths != null) {
-            for (String filepath : filepaths) {
-                // Only delete .pyc files
-                if (filepath.contains(".pyc")) {
-                    File cachedFile =
-                        new File(this.implDirPath + "/__pycache__/" + filepath);
-                    if (!cachedFile.delete()) {
-                        throw new IOException("could not delete cached file " + filepath);
-                    }
+        // Use the cached result and timing of each test case if there is one; these
+        // are stored as the timing and digest, followed by a newline and the result
+        String[] results = new String[this.tests.size()];
+        long[] times = new long[this.tests.size()];
+        long[] digests = new long[this.tests.size()];
+        String[] keys = new String[this.tests.size()];
+        List<Integer> toRun = new ArrayList<>();
+        for (int i = 0; i < this.tests.size(); i++) {
+            if (this.resultCache != null) {
+                keys[i] = ResultCache.key("expected", CACHE_VERSION,
+                    this.getSolutionHash(), this.funcName,
+                    this.tests.get(i).toCanonicalString());
+                String cached = this.resultCache.get(keys[i]);
+                if (cached != null) {
+                    int split = cached.indexOf('\n');
+                    String[] header = cached.substring(0, split).split(" ");
+                    times[i] = Long.parseLong(header[0]);
+                    digests[i] = OutputDigest.parse(header[1]);
+                    results[i] = cached.substring(split + 1);
+                    continue;
+                }
+            }
+            toRun.add(i);
+        }
+
+        // Run the remaining test cases on the solution file, caching their results
+        this.runExpectedBatches(toRun, results, times, digests);
+        if (this.resultCache != null) {
+            for (int i : toRun) {
+                if (!OutputDigest.isCacheable(digests[i])) {
+                    continue;
                 }
+                this.resultCache.put(keys[i], times[i] + " "
+                    + OutputDigest.format(digests[i]) + "\n" + results[i]);
             }
         }
+        this.expectedTimes = new ArrayList<>();
+        for (long time : times) {
+            this.expectedTimes.add(time);
+        }
+
+        // Keep the digests of the expected results, which allow us to only run the
+        // solution once per test rather than once per test per buggy implementation
+        this.expectedDigests = digests;
+
+        // Return the results
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * Runs all tests on all files in the directory of buggy implementations, comparing
+     * the outputs to the pre-generated expected results and returning the results in the
+     * form of a TestResults object.
+     *
+     * @return the results of testing
+     * @throws IOException if the path to the directory of buggy implementations is
+     *                     invalid
+     */
+    public TestResults runTests() throws IOException {
+        this.createHarnessFiles();
+        try (WorkerPool pool = this.startPool()) {
+            return this.runTests(pool);
+        }
+    }
+
+    /**
+     * Finds which files in the directory of buggy implementations are buggy, without
+     * finding every test case that catches them: testing a file stops at the first test
+     * case that catches it. The test cases are tried in order of how many files they have
+     * caught so far in this run (ties going to the one scheduled first, see
+     * getTestSchedule()), so the test cases that catch the most bugs are tried first.
+     * The expected results must already have been computed, as for runTests().
+     * <p>
+     * The returned wrongSet is complete, but the per-case data only holds the test case
+     * that caught each buggy file (and the outputs of the test cases each file passed
+     * before that), so the results are marked as partial. As with a
+     * TestSession, test cases are run one at a time: on the pool's workers in POOL mode,
+     * and in fresh processes otherwise.
+     *
+     * @return the results of testing, with partial per-case data
+     * @throws IOException if the path to the directory of buggy implementations is
+     *                     invalid
+     */
+    public TestResults triageTests() throws IOException {
+        this.createHarnessFiles();
+        try (WorkerPool pool = this.startPool()) {
+            List<String> filenames = this.getImplFilenames();
+            this.checkFiles(filenames);
+            int[] catchCounts = new int[this.tests.size()];
+            List<ImplResult> fileResults = this.forEachDistinctFile(filenames,
+                filename -> this.triageFile(filename, pool, catchCounts));
+            this.recordHistory(filenames, fileResults, true);
+            return this.collectResults(fileResults, true);
+        }
+    }
+
+    /**
+     * Opens a session for running individual test cases on individual files in the
+     * directory of buggy implementations, for callers that choose which results they
+     * need as they go. The expected results must already have been computed, as for
+     * runTests().
+     *
+     * @return the session, which must be closed once it is no longer needed
+     * @throws IOException if the path to the directory of buggy implementations is
+     *                     invalid or the harness files cannot be created
+     */
+    public TestSession openSession() throws IOException {
+        this.createHarnessFiles();
+        List<String> filenames = this.getImplFilenames();
+        this.checkFiles(filenames);
+        return new TestSession(this, filenames, this.startPool());
+    }
+
+    /**
+     * Deletes this Tester's workspace, along with everything generated in it. The Tester
+     * can still be used afterwards, in which case a new workspace is created.
+     *
+     * @throws IOException if the workspace cannot be deleted
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.workspace == null) {
+            return;
+        }
+
+        deleteTree(this.workspace);
+        this.workspace = null;
+    }
+
+    /**
+     * Deletes a directory along with everything in it.
+     *
+     * @param dir the directory to delete
+     * @throws IOException if anything cannot be deleted
+     */
+    static void deleteTree(Path dir) throws IOException {
+        // Delete the contents before the directories that hold them
+        List<Path> paths;
+        try (var walk = Files.walk(dir)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Runs all tests on all files in the directory of buggy implementations, using the
+     * given pool of workers if there is one.
+     *
+     * @param pool the pool of workers to run the tests on, or null to start a fresh
+     *             process for every test
+     * @return the results of testing
+     * @throws IOException if the path to the directory of buggy implementations is
+     *                     invalid
+     */
+    private TestResults runTests(WorkerPool pool) throws IOException {
+        // Get the (sorted) list of implementations; each one's position in this list is
+        // its index in the results
+        List<String> filenames = this.getImplFilenames();
+
+        // Test each individual file using all tests in the base test set
+        List<ImplResult> fileResults = this.testFiles(filenames, pool);
+        this.recordHistory(filenames, fileResults, false);
+        return this.collectResults(fileResults, false);
+    }
+
+    /**
+     * Gathers the results of testing each file into a TestResults object.
+     *
+     * @param fileResults a list where the i-th element is the results of testing the
+     *                    i-th file
+     * @param partial     whether any test cases were skipped on any of the files
+     * @return the results of testing
+     */
+    TestResults collectResults(List<ImplResult> fileResults, boolean partial) {
+        // Initialize the outputs
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        List<Set<Integer>> caseToTimeouts = new ArrayList<>();
+        for (int i = 0; i < this.tests.size(); i++) {
+            caseToFiles.add(new HashSet<>());
+            caseToTimeouts.add(new HashSet<>());
+        }
+        Set<Integer> wrongSet = new HashSet<>();
+        List<long[]> signatures = new ArrayList<>();
+
+        // Record which tests caught (or timed out on) each file, and add it to wrongSet
+        // if applicable
+        for (int trueIndex = 0; trueIndex < fileResults.size(); trueIndex++) {
+            ImplResult fileResult = fileResults.get(trueIndex);
+            for (int testIndex : fileResult.getCaughtBy()) {
+                caseToFiles.get(testIndex).add(trueIndex);
+            }
+            for (int testIndex : fileResult.getTimedOut()) {
+                caseToTimeouts.get(testIndex).add(trueIndex);
+            }
+            if (fileResult.getCaughtBy().size() > 0) {
+                wrongSet.add(trueIndex);
+            }
+            signatures.add(fileResult.getSignature(this.tests.size()));
+        }
+
+        // Return the results
+        return new TestResults(this.tests, caseToFiles, wrongSet, caseToTimeouts,
+            partial, signatures);
+    }
+
+    /**
+     * Creates the wrapper file, plus the file of test cases if the wrapper will be
+     * running all of them at once; these must exist before any implementation is
+     * tested. The expected results must already have been computed, as every output is
+     * compared to them.
+     *
+     * @throws IOException if the expected results have not been computed or the files
+     *                     cannot be created
+     */
+    void createHarnessFiles() throws IOException {
+        if (this.expectedDigests == null) {
+            throw new IOException("the expected results have not been computed");
+        }
+        this.createWrapperFile();
+        if (this.mode == ExecutionMode.BATCH) {
+            this.createCasesFile();
+        }
+    }
+
+    /**
+     * Compiles the solution file to bytecode up front, so that the processes that run it
+     * only ever load it. If its bytecode is already up to date (by the hash of its
+     * contents), it is left alone; if it fails to compile, that is left for the
+     * processes that import it to report.
+     *
+     * @throws IOException if the compiling process cannot be run
+     */
+    private void compileSolution() throws IOException {
+        List<String> command = this.getWorkerCommand("--compile");
+        command.add(this.solutionPath);
+        Process process = this.newProcess(command).start();
+        process.getOutputStream().close();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compiling bytecode");
+        }
+    }
+
+    /**
+     * Checks that each of the given files compiles and can be imported, before any test
+     * case is run on them. The files are split between a few Python processes that run
+     * in parallel; each compiles its files to bytecode (as for the solution) and then
+     * imports each one in a forked child. A file that fails to compile, or whose import
+     * raises an exception, would fail every test case, so it is marked as broken and
+     * counted as caught by every test case without being run. A file whose import runs
+     * out of time is left for the test cases to time out on. Each file is also
+     * fingerprinted, for grouping files that differ only in comments and whitespace.
+     *
+     * @param filenames the names of the implementation files to check
+     * @throws IOException if a checking process cannot be run
+     */
+    void checkFiles(List<String> filenames) throws IOException {
+        Set<String> broken = ConcurrentHashMap.newKeySet();
+        Map<String, String> fingerprints = new ConcurrentHashMap<>();
+        this.forEachBatch(filenames, Runtime.getRuntime().availableProcessors(),
+            batch -> this.checkBatch(batch, broken, fingerprints));
+        this.brokenFiles.removeAll(filenames);
+        this.brokenFiles.addAll(broken);
+        for (String filename : filenames) {
+            this.fingerprints.remove(filename);
+        }
+        this.fingerprints.putAll(fingerprints);
+    }
+
+    /**
+     * Checks a batch of files in one Python process, as described in checkFiles().
+     *
+     * @param filenames    the names of the implementation files to check
+     * @param broken       the set into which the names of the files that failed to
+     *                     compile or import are put
+     * @param fingerprints the map into which the fingerprint of each file that could be
+     *                     read is put
+     * @throws IOException if the checking process cannot be run
+     */
+    private void checkBatch(List<String> filenames, Set<String> broken,
+        Map<String, String> fingerprints) throws IOException {
+        List<String> command = this.getWorkerCommand("--check");
+        command.add(String.valueOf(this.getTestTimeout()));
+        Process process = this.newProcess(command).start();
+
+        // Send the names of the files, one per line; the process reads all of them
+        // before checking any, so this can't block on the process's output
+        try (Writer stdin = new OutputStreamWriter(process.getOutputStream(),
+            StandardCharsets.UTF_8)) {
+            for (String filename : filenames) {
+                stdin.write(filename + "\n");
+            }
+        } catch (IOException e) {
+            // The process has already exited, so no file is reported as broken
+        }
+
+        // Read back the fingerprint and status of each file; a file name may contain
+        // spaces, so it comes last
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ", 3);
+                if (parts.length != 3 || !filenames.contains(parts[2])) {
+                    continue;
+                }
+                if (!parts[0].equals("-")) {
+                    fingerprints.put(parts[2], parts[0]);
+                }
+                if (parts[1].equals("broken")) {
+                    broken.add(parts[2]);
+                }
+            }
+        }
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while checking files");
+        }
+    }
+
+    /**
+     * @return the directory in which Python keeps compiled bytecode
+     * @throws IOException if the workspace cannot be created
+     */
+    private Path getBytecodeCache() throws IOException {
+        if (this.bytecodeCache != null) {
+            return this.bytecodeCache;
+        }
+        return this.getWorkspace().resolve("pycache");
+    }
+
+    /**
+     * @return the name of the function under test
+     */
+    String getFuncName() {
+        return this.funcName;
+    }
+
+    /**
+     * @return the absolute path to the file containing the reference solution
+     */
+    String getSolutionPath() {
+        return this.solutionPath;
+    }
+
+    /**
+     * @return the limits on the resources that each Python process running
+     * implementation code may use
+     */
+    ResourceLimits getResourceLimits() {
+        return this.resourceLimits;
+    }
+
+    /**
+     * @return how test cases are executed through Python
+     */
+    ExecutionMode getExecutionMode() {
+        return this.mode;
+    }
+
+    /**
+     * @return how requests and responses travel between this Tester and its long-lived
+     * Python processes
+     */
+    Transport getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * @return the most implementation files that may be tested at the same time once the
+     * number adjusts itself, or 0 if it is fixed at the parallelism
+     */
+    int getConcurrencyCeiling() {
+        return this.concurrencyCeiling;
+    }
+
+    /**
+     * @return the maximum number of implementation files that are tested at the same
+     * time
+     */
+    int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @return the absolute path to the directory containing the student implementations
+     */
+    String getImplDirPath() {
+        return this.implDirPath;
+    }
+
+    /**
+     * Gets this Tester's workspace, creating it if it doesn't exist yet.
+     *
+     * @return the path to the workspace
+     * @throws IOException if the workspace cannot be created
+     */
+    synchronized Path getWorkspace() throws IOException {
+        if (this.workspace == null) {
+            if (this.workspaceRoot == null) {
+                this.workspace = Files.createTempDirectory("feat-");
+            } else {
+                this.workspace = Files.createTempDirectory(this.workspaceRoot, "feat-");
+            }
+        }
+        return this.workspace;
+    }
+
+    /**
+     * Creates a process builder for running a Python process with the given command.
+     * Python keeps its bytecode in the bytecode cache (by default, in the workspace)
+     * instead of next to the files it imports, and stderr is discarded, as nothing
+     * reads it.
+     *
+     * @param command the command for the process
+     * @return the process builder
+     * @throws IOException if the workspace cannot be created
+     */
+    ProcessBuilder newProcess(List<String> command) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.environment().put("PYTHONPYCACHEPREFIX", this.getBytecodeCache().toString());
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return pb;
+    }
+
+    /**
+     * @return the path to the wrapper file within the workspace
+     * @throws IOException if the workspace cannot be created
+     */
+    private String getWrapperPath() throws IOException {
+        return this.getWorkspace().resolve("wrapper.py").toString();
+    }
+
+    /**
+     * @return the list of test cases to be executed
+     */
+    List<TestCase> getTests() {
+        return this.tests;
+    }
+
+    /**
+     * Determines whether a file in the directory of buggy implementations is an
+     * implementation (rather than some other file, such as one generated by the Tester).
+     *
+     * @param filename the name of the file, without the directory it is in
+     * @return true if the file is an implementation to be tested; false otherwise
+     */
+    boolean isImplFilename(String filename) {
+        return filename.endsWith(".py") && !filename.equals("wrapper.py")
+            && !filename.equals("expected.py") && !filename.equals("cases.py");
+    }
+
+    /**
+     * Determines whether a subdirectory of the directory of buggy implementations may
+     * hold implementations, rather than being hidden or a bytecode cache.
+     *
+     * @param dirname the name of the subdirectory, without the directory it is in
+     * @return true if the subdirectory is searched for implementations; false otherwise
+     */
+    boolean isImplDirname(String dirname) {
+        return !dirname.startsWith(".") && !dirname.equals("__pycache__");
+    }
+
+    /**
+     * Gets the names of all implementation files in the directory of buggy
+     * implementations, in sorted order. Implementations may be directly in the
+     * directory or in subdirectories of it (such as one per student); the name of each
+     * is its path relative to the directory, with "/" as the separator.
+     *
+     * @return the sorted list of implementation filenames
+     * @throws IOException if the path to the directory of buggy implementations is
+     *                     invalid
+     */
+    List<String> getImplFilenames() throws IOException {
+        Path dir = Path.of(this.implDirPath);
+
+        // If implDirPath didn't actually point to a directory, there'd be nothing to list
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("Error: implDir is empty");
+        }
+        return this.listImplFilenames(dir);
+    }
+
+    /**
+     * Gets the names of all implementation files in the given directory (which is the
+     * directory of buggy implementations or one of its subdirectories) and its
+     * subdirectories, in sorted order, as named by getImplFilenames().
+     *
+     * @param dir the directory to search
+     * @return the sorted list of implementation filenames
+     * @throws IOException if the directory cannot be read
+     */
+    List<String> listImplFilenames(Path dir) throws IOException {
+        List<String> implFilenames = new ArrayList<>();
+        Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+            Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subdir,
+                    BasicFileAttributes attrs) {
+                    if (!subdir.equals(dir)
+                        && !isImplDirname(subdir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()
+                        && isImplFilename(file.getFileName().toString())) {
+                        implFilenames.add(toImplFilename(file));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e)
+                    throws IOException {
+                    // Skip symbolic links that lead back up the tree
+                    if (e instanceof FileSystemLoopException) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw e;
+                }
+            });
+        Collections.sort(implFilenames);
+        return implFilenames;
+    }
+
+    /**
+     * Gets the name of an implementation file from its path, as named by
+     * getImplFilenames().
+     *
+     * @param file the path to the file, within the directory of buggy implementations
+     * @return the file's path relative to the directory, with "/" as the separator
+     */
+    String toImplFilename(Path file) {
+        List<String> parts = new ArrayList<>();
+        for (Path part : Path.of(this.implDirPath).relativize(file)) {
+            parts.add(part.toString());
+        }
+        return String.join("/", parts);
+    }
+
+    /**
+     * Runs every test case on each of the given files, running up to parallelism files
+     * at once. The files are checked first (see checkFiles()), so that those that are
+     * broken are never run, and files that differ only in comments and whitespace are
+     * tested once between them (see setDeduplication()).
+     *
+     * @param filenames the names of the implementation files to test
+     * @param pool      the pool of workers to run the tests on, or null to start a fresh
+     *                  process for every test
+     * @return a list where the i-th element is the results of testing the i-th file
+     * @throws IOException if a file to run or its output cannot be accessed
+     */
+    List<ImplResult> testFiles(List<String> filenames, WorkerPool pool)
+        throws IOException {
+        this.checkFiles(filenames);
+        return this.forEachDistinctFile(filenames,
+            filename -> this.testFile(filename, pool));
+    }
+
+    /**
+     * Tests each of the given files in the given way, as forEachFile() does, except that
+     * if deduplication is on, only the first file of each group of files with the same
+     * fingerprint is actually tested; every file in the group then gets its results.
+     * The files must already have been checked, which fingerprints them.
+     *
+     * @param filenames the names of the implementation files to test
+     * @param test      how to test each file
+     * @return a list where the i-th element is the results of testing the i-th file
+     * @throws IOException if a file to run or its output cannot be accessed
+     */
+    private List<ImplResult> forEachDistinctFile(List<String> filenames, FileTest test)
+        throws IOException {
+        if (!this.deduplicate) {
+            return this.forEachFile(filenames, test);
+        }
+
+        // Pick the first file with each fingerprint to represent the others; a file
+        // without a fingerprint represents itself
+        Map<String, String> firstWithFingerprint = new HashMap<>();
+        List<String> representatives = new ArrayList<>();
+        List<String> distinct = new ArrayList<>();
+        for (String filename : filenames) {
+            String fingerprint = this.fingerprints.get(filename);
+            String representative = fingerprint == null ? filename
+                : firstWithFingerprint.computeIfAbsent(fingerprint, key -> filename);
+            if (representative.equals(filename)) {
+                distinct.add(filename);
+            }
+            representatives.add(representative);
+        }
+
+        // Test the representatives, and give each file its representative's results
+        List<ImplResult> distinctResults = this.forEachFile(distinct, test);
+        Map<String, ImplResult> resultsByFile = new HashMap<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            resultsByFile.put(distinct.get(i), distinctResults.get(i));
+        }
+        List<ImplResult> fileResults = new ArrayList<>();
+        for (String representative : representatives) {
+            fileResults.add(resultsByFile.get(representative));
+        }
+        return fileResults;
+    }
+
+    /**
+     * Tests each of the given files in the given way, testing up to parallelism files at
+     * once (or, with a concurrency ceiling, as many as the ConcurrencyController
+     * allows). The files expected to take longest are started first (see
+     * getMakespanReport()), so that a slow file doesn't start last and hold up the end
+     * of the run; the makespan is then reported.
+     *
+     * @param filenames the names of the implementation files to test
+     * @param test      how to test each file
+     * @return a list where the i-th element is the results of testing the i-th file
+     * @throws IOException if a file to run or its output cannot be accessed
+     */
+    private List<ImplResult> forEachFile(List<String> filenames, FileTest test)
+        throws IOException {
+        ImplResult[] fileResults = new ImplResult[filenames.size()];
+        int parallelism = Math.max(Math.min(this.parallelism, filenames.size()), 1);
+        int numThreads = this.concurrencyCeiling > 0
+            ? Math.max(Math.min(this.concurrencyCeiling, filenames.size()), 1)
+            : parallelism;
+        long[] estimates = this.estimateFileTimes(filenames);
+        long start = System.nanoTime();
+
+        // Test the files one at a time, where the order makes no difference
+        if (numThreads == 1) {
+            for (int i = 0; i < filenames.size(); i++) {
+                fileResults[i] = runTimed(test, filenames.get(i));
+            }
+            this.reportMakespan(filenames.size(), estimates, null, 1, start, null);
+            return new ArrayList<>(Arrays.asList(fileResults));
+        }
+
+        // Otherwise, test the files concurrently, longest first; the threads spend
+        // nearly all of their time waiting on Python, so there can be more of them than
+        // cores. With a concurrency ceiling, there is a thread for every file that may
+        // ever be tested at once, and the controller decides how many of them do.
+        List<Integer> order = this.inMakespanOrder(filenames, estimates);
+        ConcurrencyController controller = this.concurrencyCeiling > 0
+            ? new ConcurrencyController(parallelism, numThreads) : null;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            Map<Integer, Future<ImplResult>> futures = new HashMap<>();
+            for (int i : order) {
+                String filename = filenames.get(i);
+                futures.put(i,
+                    executor.submit(() -> runControlled(test, filename, controller)));
+            }
+
+            // Collect the results in the same order as the files
+            for (int i = 0; i < filenames.size(); i++) {
+                fileResults[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while running tests");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("error while running tests", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        this.reportMakespan(filenames.size(), estimates, order,
+            controller == null ? numThreads : parallelism, start, controller);
+        return new ArrayList<>(Arrays.asList(fileResults));
+    }
+
+    /**
+     * Tests a single implementation file in the given way once the concurrency
+     * controller (if there is one) allows it, records how long it took in its results,
+     * and lets the controller know.
+     *
+     * @param test       how to test the file
+     * @param filename   the name of the implementation file to test
+     * @param controller the controller deciding how many files are tested at once, or
+     *                   null if the number is fixed
+     * @return the results of testing the file
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    private static ImplResult runControlled(FileTest test, String filename,
+        ConcurrencyController controller) throws IOException {
+        if (controller == null) {
+            return runTimed(test, filename);
+        }
+        try {
+            controller.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to run tests");
+        }
+        try {
+            ImplResult fileResult = runTimed(test, filename);
+            controller.record(fileResult);
+            return fileResult;
+        } finally {
+            controller.release();
+        }
+    }
+
+    /**
+     * Tests a single implementation file in the given way, and records how long it took
+     * in its results.
+     *
+     * @param test     how to test the file
+     * @param filename the name of the implementation file to test
+     * @return the results of testing the file
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    private static ImplResult runTimed(FileTest test, String filename)
+        throws IOException {
+        long start = System.nanoTime();
+        ImplResult fileResult = test.run(filename);
+        fileResult.setElapsedNanos(System.nanoTime() - start);
+        return fileResult;
+    }
+
+    /**
+     * Estimates how long testing each of the given files will take, from the run
+     * history: the time a file took in the last full run, or the median time of every
+     * file in the history if it has none.
+     *
+     * @param filenames the names of the implementation files
+     * @return an array where the i-th element is the estimated time of the i-th file in
+     * nanoseconds, or null if there are no times in the history to estimate from
+     */
+    private long[] estimateFileTimes(List<String> filenames) {
+        RunHistory history;
+        synchronized (this) {
+            history = this.runHistory;
+        }
+        Long median = history == null ? null : history.getMedianFileTime();
+        if (median == null) {
+            return null;
+        }
+
+        long[] estimates = new long[filenames.size()];
+        for (int i = 0; i < estimates.length; i++) {
+            Long time = history.getFileTime(filenames.get(i));
+            estimates[i] = time == null ? median : time;
+        }
+        return estimates;
+    }
+
+    /**
+     * Sorts the given files into the order in which they are started: longest estimated
+     * time first or, without estimates, largest file first, with ties going to the lower
+     * index.
+     *
+     * @param filenames the names of the implementation files
+     * @param estimates the estimated time of each file (see estimateFileTimes()), or null
+     *                  if there are none
+     * @return the indices of the files, in the order in which they are started
+     */
+    private List<Integer> inMakespanOrder(List<String> filenames, long[] estimates) {
+        long[] keys = estimates;
+        if (keys == null) {
+            keys = new long[filenames.size()];
+            for (int i = 0; i < keys.length; i++) {
+                try {
+                    keys[i] = Files.size(Path.of(this.implDirPath, filenames.get(i)));
+                } catch (IOException e) {
+                    // Testing the file will report the problem
+                    keys[i] = 0;
+                }
+            }
+        }
+
+        long[] sortKeys = keys;
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < filenames.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Long.compare(sortKeys[b], sortKeys[a]));
+        return order;
+    }
+
+    /**
+     * Records the makespan of a set of files that have just been tested, next to the
+     * makespan predicted by simulating the order in which they were started: each file
+     * goes to whichever worker frees up first, and takes its estimated time.
+     *
+     * @param numFiles   the number of files that were tested
+     * @param estimates  the estimated time of each file (see estimateFileTimes()), or
+     *                   null if there are none
+     * @param order      the indices of the files in the order in which they were
+     *                   started, or null if they were started in index order
+     * @param numWorkers the number of files that were tested at once (at first, if the
+     *                   number was adjusted as the run went)
+     * @param start      the value of System.nanoTime() when testing began
+     * @param controller the controller that adjusted the number of files tested at
+     *                   once, or null if the number was fixed
+     */
+    private void reportMakespan(int numFiles, long[] estimates, List<Integer> order,
+        int numWorkers, long start, ConcurrencyController controller) {
+        long actual = System.nanoTime() - start;
+        long predicted = -1;
+        if (estimates != null) {
+            PriorityQueue<Long> workerEnds = new PriorityQueue<>();
+            for (int i = 0; i < numWorkers; i++) {
+                workerEnds.add(0L);
+            }
+            predicted = 0;
+            for (int i = 0; i < numFiles; i++) {
+                int fileIndex = order == null ? i : order.get(i);
+                long end = workerEnds.remove() + estimates[fileIndex];
+                workerEnds.add(end);
+                predicted = Math.max(predicted, end);
+            }
+        }
+
+        MakespanReport report = new MakespanReport(numFiles, numWorkers, predicted,
+            actual, controller == null ? List.of() : controller.getDecisions());
+        synchronized (this) {
+            this.makespanReport = report;
+        }
+    }
+
+    /**
+     * Runs each test case on a single implementation file, keeping track of which ones
+     * caught errors or ran out of time. If there is a result cache, only the test cases
+     * whose results aren't cached are run, and their results are then cached.
+     *
+     * @param filename the name of the implementation file to test
+     * @param pool     the pool of workers to run the tests on, or null to start a fresh
+     *                 process for every test
+     * @return the results of testing the file
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    ImplResult testFile(String filename, WorkerPool pool) throws IOException {
+        // A broken file is caught by every test case without running any
+        ImplResult fileResult = new ImplResult();
+        if (this.brokenFiles.contains(filename)) {
+            for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
+                this.recordOutput(fileResult, testIndex, OutputDigest.ERROR);
+            }
+            return fileResult;
+        }
+
+        // Look up the cached results, gathering the test cases that still need to run
+        List<Integer> toRun = new ArrayList<>();
+        List<String> keys = this.getTestKeys(filename);
+        for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
+            String cached =
+                keys == null ? null : this.resultCache.get(keys.get(testIndex));
+            if (cached == null) {
+                toRun.add(testIndex);
+            } else {
+                this.recordOutput(fileResult, testIndex, OutputDigest.parse(cached));
+            }
+        }
+        if (toRun.isEmpty()) {
+            return fileResult;
+        }
+
+        // Run the remaining test cases
+        ImplResult ranResult;
+        if (this.mode == ExecutionMode.BATCH) {
+            ranResult = this.testFileBatch(filename, toRun);
+        } else if (this.mode == ExecutionMode.FORK_SERVER) {
+            ranResult = this.testFileForked(filename, toRun);
+        } else {
+            ranResult = this.testFileByCase(filename, toRun, pool);
+        }
+
+        // Merge their results in, caching those that didn't time out
+        fileResult.addCasesRun(toRun.size());
+        for (int testIndex : toRun) {
+            if (ranResult.getTimedOut().contains(testIndex)) {
+                fileResult.addTimeout(testIndex);
+                continue;
+            }
+            long digest = ranResult.getOutputs().get(testIndex);
+            this.recordOutput(fileResult, testIndex, digest);
+            if (keys != null && OutputDigest.isCacheable(digest)) {
+                this.resultCache.put(keys.get(testIndex), OutputDigest.format(digest));
+            }
+        }
+        return fileResult;
+    }
+
+    /**
+     * Runs test cases on a single implementation file until one of them catches it,
+     * trying them in order of how many files they have caught so far, and otherwise in
+     * schedule order. The count of the test case that catches the file is then
+     * increased. The results hold every test case that was run, including those the
+     * file passed, so that the run history counts them as runs.
+     *
+     * @param filename    the name of the implementation file to test
+     * @param pool        the pool of workers to run the tests on, or null to start a
+     *                    fresh process for every test
+     * @param catchCounts the number of files each test case has caught so far, which is
+     *                    shared by every file being triaged
+     * @return the results of testing the file, in which at most one test case (the last
+     * one run) caught it
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    private ImplResult triageFile(String filename, WorkerPool pool, int[] catchCounts)
+        throws IOException {
+        // Order the test cases by their counts so far, breaking ties by the schedule
+        List<Integer> order = this.getTestSchedule();
+        synchronized (catchCounts) {
+            int[] counts = catchCounts.clone();
+            order.sort((a, b) -> Integer.compare(counts[b], counts[a]));
+        }
+
+        // Run them until one catches the file
+        ImplResult fileResult = new ImplResult();
+        List<String> keys = this.getTestKeys(filename);
+        for (int testIndex : order) {
+            ImplResult cellResult = this.testCell(filename, testIndex,
+                keys == null ? null : keys.get(testIndex), pool);
+            fileResult.merge(cellResult);
+            if (!cellResult.getCaughtBy().isEmpty()) {
+                synchronized (catchCounts) {
+                    catchCounts[testIndex]++;
+                }
+                break;
+            }
+        }
+        return fileResult;
+    }
+
+    /**
+     * Runs a single test case on a single implementation file, using the cached result
+     * if there is one and caching the result otherwise (unless it ran out of time).
+     *
+     * @param filename  the name of the implementation file to test
+     * @param testIndex the index of the test case to run
+     * @param key       the result cache key for the test case and file, or null if
+     *                  there is no result cache
+     * @param pool      the pool of workers to run the test on, or null to start a
+     *                  fresh process
+     * @return the result of running the test case on the file, in which the test case
+     * is recorded as having caught the file if it failed or ran out of time
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    ImplResult testCell(String filename, int testIndex, String key, WorkerPool pool)
+        throws IOException {
+        ImplResult cellResult = new ImplResult();
+        if (this.brokenFiles.contains(filename)) {
+            this.recordOutput(cellResult, testIndex, OutputDigest.ERROR);
+            return cellResult;
+        }
+        if (key != null) {
+            String cached = this.resultCache.get(key);
+            if (cached != null) {
+                this.recordOutput(cellResult, testIndex, OutputDigest.parse(cached));
+                return cellResult;
+            }
+        }
+
+        String result;
+        cellResult.addCasesRun(1);
+        try {
+            result = this.runCase(this.getTestArgs(filename),
+                this.getEncodedArgs(testIndex), pool, this.getTestTimeout());
+        } catch (TestTimeoutException e) {
+            cellResult.addTimeout(testIndex);
+            return cellResult;
+        }
+        long digest = OutputDigest.parse(result);
+        this.recordOutput(cellResult, testIndex, digest);
+        if (key != null && OutputDigest.isCacheable(digest)) {
+            this.resultCache.put(key, OutputDigest.format(digest));
+        }
+        return cellResult;
+    }
+
+    /**
+     * Records the digest of an implementation file's output on a test case, and whether
+     * the test case caught the file: it does unless the output is equal to the expected
+     * result. A test case that raised an exception (or whose process died) always
+     * catches the file, even if the solution raised one too.
+     *
+     * @param fileResult the results of testing the file, to record the output in
+     * @param testIndex  the index of the test case
+     * @param digest     the digest of the output, or a marker if there was none (see
+     *                   OutputDigest)
+     */
+    private void recordOutput(ImplResult fileResult, int testIndex, long digest) {
+        fileResult.addOutput(testIndex, digest);
+        if (!OutputDigest.matches(digest, this.expectedDigests[testIndex])) {
+            fileResult.getCaughtBy().add(testIndex);
+        }
+    }
+
+    /**
+     * Computes the result cache key for running each test case on a single
+     * implementation file.
+     *
+     * @param filename the name of the implementation file
+     * @return a list where the i-th element is the key for the i-th test case, or null
+     * if there is no result cache
+     * @throws IOException if the implementation or solution file cannot be read
+     */
+    List<String> getTestKeys(String filename) throws IOException {
+        if (this.resultCache == null) {
+            return null;
+        }
+        String implHash = ResultCache.hashFile(Path.of(this.implDirPath, filename));
+        List<String> keys = new ArrayList<>();
+        for (TestCase test : this.tests) {
+            keys.add(ResultCache.key("test", CACHE_VERSION, this.getSolutionHash(),
+                implHash, this.funcName, test.toCanonicalString(),
+                this.resourceLimits.toString()));
+        }
+        return keys;
+    }
+
+    /**
+     * Gets the binary encoding of a single test case's arguments, encoding every test
+     * case on first use.
+     *
+     * @param testIndex the index of the test case
+     * @return the encoding of the test case's arguments
+     * @throws IOException if the arguments cannot be encoded
+     */
+    private synchronized byte[] getEncodedArgs(int testIndex) throws IOException {
+        if (this.encodedArgs == null) {
+            List<byte[]> encodedArgs = new ArrayList<>();
+            for (TestCase test : this.tests) {
+                encodedArgs.add(test.encodeArgs());
+            }
+            this.encodedArgs = encodedArgs;
+        }
+        return this.encodedArgs.get(testIndex);
+    }
+
+    /**
+     * @return the hash of the solution file's contents, computed on first use
+     * @throws IOException if the solution file cannot be read
+     */
+    private synchronized String getSolutionHash() throws IOException {
+        if (this.solutionHash == null) {
+            this.solutionHash = ResultCache.hashFile(Path.of(this.solutionPath));
+        }
+        return this.solutionHash;
+    }
+
+    /**
+     * Runs the given test cases on a single implementation file one at a time, in
+     * schedule order, either in fresh processes or on the pool's workers.
+     *
+     * @param filename    the name of the implementation file to test
+     * @param testIndices the indices of the test cases to run
+     * @param pool        the pool of workers to run the tests on, or null to start a
+     *                    fresh process for every test
+     * @return the results of testing the file
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    private ImplResult testFileByCase(String filename, List<Integer> testIndices,
+        WorkerPool pool) throws IOException {
+        ImplResult fileResult = new ImplResult();
+        long timeout = this.getTestTimeout();
+        for (int testIndex : this.inScheduleOrder(testIndices)) {
+            List<String> args = this.getTestArgs(filename);
+            try {
+                String result =
+                    this.runCase(args, this.getEncodedArgs(testIndex), pool, timeout);
+                this.recordOutput(fileResult, testIndex, OutputDigest.parse(result));
+            } catch (TestTimeoutException e) {
+                fileResult.addTimeout(testIndex);
+            }
+        }
+        return fileResult;
+    }
+
+    /**
+     * Runs each test case on a single implementation file through a fork server: a
+     * Python process that has already imported the wrapper and the implementation, and
+     * that forks a fresh child to run each test case, in schedule order. Every test case
+     * therefore starts from the same clean state without paying for interpreter
+     * startup.
+     *
+     * @param filename    the name of the implementation file to test
+     * @param testIndices the indices of the test cases to run
+     * @return the results of testing the file
+     * @throws IOException if the fork server cannot be started
+     */
+    private ImplResult testFileForked(String filename, List<Integer> testIndices)
+        throws IOException {
+        List<String> command = this.getServerCommand("--fork");
+        command.add(filename);
+        ProcessBuilder pb = this.newProcess(command);
+
+        ImplResult fileResult = new ImplResult();
+        long timeout = this.getTestTimeout();
+        PyWorker server = new PyWorker(pb, this.getRingDir());
+        try {
+            for (int testIndex : this.inScheduleOrder(testIndices)) {
+                List<String> args = this.getTestArgs(filename);
+                try {
+                    String result =
+                        server.call(args, this.getEncodedArgs(testIndex), timeout);
+                    this.recordOutput(fileResult, testIndex, OutputDigest.parse(result));
+                } catch (IOException e) {
+                    // The server itself died (or was killed along with the child that
+                    // ran out of time), so count this test as a failure and start a
+                    // new server for the remaining tests
+                    if (e instanceof TestTimeoutException) {
+                        fileResult.addTimeout(testIndex);
+                    } else {
+                        this.recordOutput(fileResult, testIndex, OutputDigest.NO_OUTPUT);
+                    }
+                    server.close();
+                    server = new PyWorker(pb, this.getRingDir());
+                }
+            }
+        } finally {
+            server.close();
+        }
+        return fileResult;
+    }
+
+    /**
+     * Runs the given test cases on a single implementation file in one Python process,
+     * which is sent their indices in schedule order and streams back one "case_num
+     * digest" line per test case as it goes. If a test case runs out of time, the
+     * process is killed; if it dies on a test case in any other way, that test case
+     * fails. Either way, a new process picks up from the following test case.
+     *
+     * @param filename    the name of the implementation file to test
+     * @param testIndices the indices of the test cases to run
+     * @return the results of testing the file
+     * @throws IOException if the file to run or its output cannot be accessed
+     */
+    private ImplResult testFileBatch(String filename, List<Integer> testIndices)
+        throws IOException {
+        // Every test case is assumed to have produced no output until it reports back,
+        // so that any cases that never do (e.g. because the process died part-way
+        // through) count as failures
+        ImplResult fileResult = new ImplResult();
+        List<Integer> order = this.inScheduleOrder(testIndices);
+        long[] digests = new long[this.tests.size()];
+        Arrays.fill(digests, OutputDigest.NO_OUTPUT);
+
+        long timeout = this.getTestTimeout();
+        int next = 0;
+        while (next < order.size()) {
+            List<String> args = new ArrayList<>();
+            args.add("python3");
+            args.add(this.getWrapperPath());
+            args.add("--batch");
+            args.add(filename);
+            args.add(this.funcName);
+            Process process = this.newProcess(args).start();
+
+            // Each test case gets the full budget, starting from when the previous one
+            // reported back
+            Watchdog watchdog = new Watchdog(process, timeout);
+
+            // Send the indices of the remaining test cases; the process reads all of
+            // them before running any, so this can't block on the process's output
+            try (Writer stdin = new OutputStreamWriter(process.getOutputStream(),
+                StandardCharsets.UTF_8)) {
+                for (int testIndex : order.subList(next, order.size())) {
+                    stdin.write(testIndex + "\n");
+                }
+            } catch (IOException e) {
+                // The process has already exited, which is reported through its
+                // output below
+            }
+
+            // Read the results as they are streamed back, in the order they were sent
+            var reader =
+                new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 2 || next >= order.size()
+                    || !parts[0].equals(String.valueOf(order.get(next)))) {
+                    continue;
+                }
+                watchdog.reset();
+                digests[order.get(next)] = OutputDigest.parse(parts[1]);
+                next++;
+            }
+            reader.close();
+
+            // Wait until the process has exited
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                watchdog.cancel();
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while running a batch");
+            }
+            watchdog.cancel();
+
+            // If the process died part-way through, skip past the test case it died on:
+            // it ran out of time if the process was killed, and otherwise it failed
+            // (e.g. because the implementation exited the interpreter), so it is left
+            // without an output
+            if (next >= order.size()) {
+                break;
+            }
+            if (watchdog.hasFired()) {
+                fileResult.addTimeout(order.get(next));
+            }
+            next++;
+        }
+
+        // Record the output of every test case that didn't run out of time
+        for (int testIndex : order) {
+            if (!fileResult.getTimedOut().contains(testIndex)) {
+                this.recordOutput(fileResult, testIndex, digests[testIndex]);
+            }
+        }
+        return fileResult;
+    }
+
+    /**
+     * Runs the given test cases on the solution file, splitting them evenly into
+     * contiguous batches that run in parallel, one Python process per batch.
+     *
+     * @param testIndices the indices of the test cases to run, in ascending order
+     * @param results     the array into which the result of each test case is put
+     * @param times       the array into which the time taken by each test case (in
+     *                    nanoseconds) is put
+     * @param digests     the array into which the digest of each test case's result is
+     *                    put
+     * @throws IOException if the solution or its output cannot be accessed
+     */
+    private void runExpectedBatches(List<Integer> testIndices, String[] results,
+        long[] times, long[] digests) throws IOException {
+        // Each batch writes to its own elements of the arrays, so they can run
+        // concurrently without further synchronization
+        this.forEachBatch(testIndices, this.referenceWorkers,
+            batch -> this.runExpectedBatch(batch, results, times, digests));
+    }
+
+    /**
+     * Splits the given items evenly into contiguous batches and runs the given task on
+     * each batch, running up to the given number of batches (each typically in its own
+     * Python process) at once.
+     *
+     * @param items      the items to split into batches
+     * @param numBatches the number of batches to split the items into, which is also
+     *                   the number run at once
+     * @param task       the task to run on each batch
+     * @param <T>        the type of the items
+     * @throws IOException if the task fails on any batch
+     */
+    private <T> void forEachBatch(List<T> items, int numBatches, BatchTask<T> task)
+        throws IOException {
+        numBatches = Math.min(Math.max(numBatches, 1), items.size());
+        if (numBatches <= 1) {
+            if (!items.isEmpty()) {
+                task.run(items);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numBatches);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < numBatches; i++) {
+                List<T> batch = items.subList(items.size() * i / numBatches,
+                    items.size() * (i + 1) / numBatches);
+                futures.add(executor.submit(() -> {
+                    task.run(batch);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while running batches");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("error while running batches", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a batch of test cases on the solution file in one Python process, which is
+     * sent each test case's index and encoded arguments and streams back one framed
+     * response per test case, in order, holding its index, its timing, the digest of its
+     * result and its result. If the process dies part-way through (e.g. because the
+     * solution exited the interpreter), the test case it was running gets an empty
+     * result and no output (see OutputDigest.NO_OUTPUT), which is never cached, and a
+     * new process picks up from the following test case.
+     *
+     * @param testIndices the indices of the test cases to run
+     * @param results     the array into which the result of each test case is put
+     * @param times       the array into which the time taken by each test case (in
+     *                    nanoseconds) is put
+     * @param digests     the array into which the digest of each test case's result is
+     *                    put
+     * @throws IOException if the solution or its output cannot be accessed
+     */
+    private void runExpectedBatch(List<Integer> testIndices, String[] results,
+        long[] times, long[] digests) throws IOException {
+        int next = 0;
+        while (next < testIndices.size()) {
+            List<String> command = this.getWorkerCommand("--expected-batch");
+            command.add(this.solutionPath);
+            command.add(this.funcName);
+            Process process = this.newProcess(command).start();
+
+            // Send the remaining test cases; the process reads all of them before
+            // running any, so this can't block on the process's output
+            try (DataOutputStream stdin = new DataOutputStream(
+                new BufferedOutputStream(process.getOutputStream()))) {
+                for (int testIndex : testIndices.subList(next, testIndices.size())) {
+                    byte[] encodedArgs = this.getEncodedArgs(testIndex);
+                    stdin.writeInt(testIndex);
+                    stdin.writeInt(encodedArgs.length);
+                    stdin.write(encodedArgs);
+                }
+            } catch (IOException e) {
+                // The process has already exited, which is reported through its
+                // output below
+            }
+
+            // Read the results as they are streamed back; each is the test case's
+            // index, timing and digest, then a newline and the result
+            try (DataInputStream stdout = new DataInputStream(
+                new BufferedInputStream(process.getInputStream()))) {
+                while (next < testIndices.size()) {
+                    byte[] frame;
+                    try {
+                        frame = new byte[stdout.readInt()];
+                        stdout.readFully(frame);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    String response = new String(frame, StandardCharsets.UTF_8);
+                    int split = response.indexOf('\n');
+                    String[] header = response.substring(0, split).split(" ");
+                    int testIndex = Integer.parseInt(header[0]);
+                    times[testIndex] = Long.parseLong(header[1]);
+                    digests[testIndex] = OutputDigest.parse(header[2]);
+                    results[testIndex] = response.substring(split + 1);
+                    next++;
+                }
+            }
+
+            // Wait until the process has exited
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                    "interrupted while computing expected results");
+            }
+
+            // If the process died part-way through, skip past the test case it died on
+            if (next < testIndices.size()) {
+                results[testIndices.get(next)] = "";
+                digests[testIndices.get(next)] = OutputDigest.NO_OUTPUT;
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Builds the list of command-line arguments for the wrapper to execute a buggy
+     * implementation in order to get the actual results on a single test case. The test
+     * case's arguments aren't included, as they are sent separately in encoded form.
+     *
+     * @param filename the name of the implementation being tested
+     * @return the wrapper args for running a test case through the implementation
+     */
+    private List<String> getTestArgs(String filename) {
+        List<String> args = new ArrayList<>();
+
+        // Need to know which file we're testing and which function to invoke within the
+        // file under test
+        args.add(filename);
+        args.add(this.funcName);
+        return args;
+    }
+
+    /**
+     * Starts a pool of workers for running test cases, if the execution mode calls for
+     * one. The workers run the wrapper file, which must already exist, and load the
+     * solution and implementations on demand.
+     *
+     * @return the pool of workers, or null if every test runs in a fresh process
+     * @throws IOException if the workspace cannot be created
+     */
+    WorkerPool startPool() throws IOException {
+        if (this.mode != ExecutionMode.POOL) {
+            return null;
+        }
+        return new WorkerPool(this.newProcess(this.getServerCommand("--worker")),
+            this.getRingDir(), this.poolSize, this.recycleAfter);
+    }
+
+    /**
+     * @return the directory in which long-lived Python processes get their shared
+     * memory, or null if they talk over pipes
+     * @throws IOException if the workspace cannot be created
+     */
+    private Path getRingDir() throws IOException {
+        return this.transport == Transport.SHARED_MEMORY ? this.getWorkspace() : null;
+    }
+
+    /**
+     * Builds the command for starting a wrapper process that serves framed requests.
+     *
+     * @param flag the flag selecting how the wrapper serves requests (--worker or
+     *             --fork)
+     * @return the command for starting the process
+     * @throws IOException if the workspace cannot be created
+     */
+    private List<String> getWorkerCommand(String flag) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("python3");
+        command.add(this.getWrapperPath());
+        command.add(flag);
+        return command;
+    }
+
+    /**
+     * Builds the command for starting a long-lived wrapper process that serves framed
+     * requests through a PyWorker, over the transport in use.
+     *
+     * @param flag the flag selecting how the wrapper serves requests (--worker or
+     *             --fork), which is followed by --shm if they travel through shared
+     *             memory
+     * @return the command for starting the process
+     * @throws IOException if the workspace cannot be created
+     */
+    private List<String> getServerCommand(String flag) throws IOException {
+        List<String> command = this.getWorkerCommand(flag);
+        if (this.transport == Transport.SHARED_MEMORY) {
+            command.add("--shm");
+        }
+        return command;
+    }
+
+    /**
+     * Runs a single test case, as described by a list of wrapper args (as output by
+     * getTestArgs) and the encoded arguments of the test case. Without
+     * a pool of workers, a new wrapper process is started with the given args and sent
+     * the encoded arguments over stdin; otherwise, both are sent to one of the workers
+     * as a request, and the worker responds with what the wrapper process would have
+     * printed.
+     *
+     * @param args          the wrapper args for running the test case
+     * @param encodedArgs   the encoded arguments of the test case
+     * @param pool          the pool of workers to run the test on, or null to start a
+     *                      fresh process
+     * @param timeoutMillis the time budget for the test case in milliseconds, or 0 for
+     *                      no limit
+     * @return the result of running the test case, which is the digest of the output
+     * (or anything else if there was no output)
+     * @throws TestTimeoutException if the test case ran out of time
+     * @throws IOException          if the file to run or its output cannot be accessed
+     */
+    private String runCase(List<String> args, byte[] encodedArgs, WorkerPool pool,
+        long timeoutMillis) throws IOException {
+        if (pool != null) {
+            return pool.submit(args, encodedArgs, timeoutMillis);
+        }
+        List<String> command = new ArrayList<>();
+        command.add("python3");
+        command.add(this.getWrapperPath());
+        command.addAll(args);
+        return this.runTestHelper(command, encodedArgs, timeoutMillis);
+    }
+
+    /**
+     * A helper function for runCase which runs a Python process, writes the given input
+     * to its stdin and reads its output. The output is drained while the process runs,
+     * so that a process printing more than a pipe's worth can't block, but only the
+     * last OUTPUT_TAIL_BYTES of it are kept; stderr is discarded. If the process runs
+     * for longer than the given time budget, it is killed along with any processes it
+     * started.
+     *
+     * @param args          the arguments for the process to be created
+     * @param input         the bytes to write to the process's stdin
+     * @param timeoutMillis the time budget for the process in milliseconds, or 0 for no
+     *                      limit
+     * @throws TestTimeoutException if the process ran out of time
+     * @throws IOException          if the file to run or its output cannot be accessed
+     */
+    private String runTestHelper(List<String> args, byte[] input, long timeoutMillis)
+        throws IOException {
+        Process process = this.newProcess(args).start();
+        Watchdog watchdog = new Watchdog(process, timeoutMillis);
+
+        // Send the input; the process reads all of it before running anything, so
+        // this can't block on the process's output
+        try (OutputStream stdin = process.getOutputStream()) {
+            stdin.write(input);
+        } catch (IOException e) {
+            // The process has already exited (or been killed), which is reported
+            // through its output below
+        }
+
+        // Read the output of the process until it exits (or is killed)
+        TailBuffer output = new TailBuffer(OUTPUT_TAIL_BYTES);
+        output.drain(process.getInputStream());
+
+        // Wait until the process has exited
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            watchdog.cancel();
+            Watchdog.killTree(process);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while running a test case");
+        }
+        watchdog.cancel();
+        if (watchdog.hasFired()) {
+            throw new TestTimeoutException("test did not finish within " + timeoutMillis
+                + " ms");
+        }
+
+        // Return the result, which is the last line of the output
+        return output.lastLine();
+    }
+
+    /**
+     * Creates a wrapper file that reads the name of a buggy implementation and the
+     * function under test from its command-line args, decodes the test case's arguments
+     * (see TestCase.encodeArgs()) from stdin, dynamically imports the buggy
+     * implementation, generates the actual results for that test case, and then prints
+     * the digest of the returned value (see OutputDigest), or the error marker if it
+     * raised an exception, which is compared to that of the expected value in Java.
+     * The arguments are decoded directly, so no Python code is ever evaluated and their
+     * size isn't limited by the command line.
+     * Each implementation is loaded straight from its path (see getImplFilenames())
+     * under a module name of its own, so the directory of buggy implementations is
+     * never on the import path: no interpreter has to list it, and an implementation
+     * named like a standard module can't shadow it.
+     * <p>
+     * When invoked as "wrapper.py --expected-batch solution_path fname", the wrapper
+     * instead reads a sequence of test case indices and encoded arguments from stdin,
+     * runs the solution on each, and writes back one framed response per test case
+     * holding its index, the time taken by the solution in nanoseconds, the digest of the
+     * result and its repr.
+     * <p>
+     * When invoked as "wrapper.py --worker", the wrapper instead stays resident and
+     * serves a stream of framed requests (see PyWorker) from stdin, each holding the
+     * command-line args that would otherwise have been used to invoke the wrapper,
+     * followed by the encoded arguments. Imported modules are kept loaded between
+     * requests. When invoked as "wrapper.py --worker --shm", the requests and responses
+     * travel through shared memory instead (see SharedMemoryChannel).
+     * <p>
+     * When invoked as "wrapper.py --batch impl_name fname", the wrapper instead runs the
+     * test cases in cases.bin whose indices are given on stdin (one per line), in that
+     * order, on the given implementation, printing one "case_num digest" line per test
+     * case; exceptions are caught per test case, and reported as "-" instead of a
+     * digest.
+     * <p>
+     * When invoked as "wrapper.py --compile solution_path", the wrapper instead
+     * compiles the solution, writing checked-hash bytecode to exactly where importing it
+     * will look for it.
+     * <p>
+     * When invoked as "wrapper.py --check timeout_ms", the wrapper instead compiles each
+     * of the implementations named on stdin (one per line) in the same way, imports each
+     * one in a forked child that is allowed timeout_ms to finish, and prints one
+     * "fingerprint status impl_name" line per implementation, where the fingerprint
+     * ignores comments and whitespace, and the status is "broken" if the implementation
+     * failed to compile or its import raised an exception and "ok" otherwise.
+     * <p>
+     * When invoked as "wrapper.py --fork [--shm] impl_name", the wrapper preloads the
+     * given implementation, then serves requests like a worker, except
+     * that each one is handled in a freshly forked child.
+     * <p>
+     * In every mode that runs implementation code, the wrapper first sets the resource
+     * limits (see setResourceLimits()) on its own process (in --fork mode, on each
+     * forked child instead, so that the server itself can keep forking), and a test case
+     * that runs into one reports the limit's marker (see OutputDigest) instead of a
+     * digest.
+     *
+     * @throws IOException if the wrapper file cannot be created
+     */
+    private void createWrapperFile() throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        // Import the modules we'll need
+        sb.append("import errno\nimport hashlib\nimport io\nimport mmap\nimport os\n");
+        sb.append("import resource\nimport signal\nimport struct\nimport sys\n");
+        sb.append("import time\n");
+        sb.append("import importlib.util\nimport py_compile\n");
+        sb.append("\n");
+        sb.append("here = os.path.dirname(os.path.abspath(__file__))\n");
+        sb.append("impl_dir = ").append(toPyLiteral(this.implDirPath)).append("\n");
+        sb.append("modules = {}\n");
+        sb.append("limits = ").append(this.resourceLimits.toPyTuple()).append("\n");
+        sb.append("error_marker = \"").append(OutputDigest.format(OutputDigest.ERROR))
+            .append("\"\n\n");
+
+        // Functions for limiting the resources used by implementation code: the
+        // memory, open file and process limits are set once per process, while the CPU
+        // limit is moved ahead of the CPU time used so far before each test case, and
+        // lifted after it. The soft CPU limit raises SIGXCPU, which is turned into an
+        // exception that the code under test can't catch as an Exception.
+        sb.append("class CpuLimitExceeded(BaseException):\n");
+        sb.append("    pass\n\n");
+        sb.append("def on_cpu_limit(signum, frame):\n");
+        sb.append("    raise CpuLimitExceeded\n\n");
+        sb.append("def set_limit(kind, limit):\n");
+        sb.append("    hard = resource.getrlimit(kind)[1]\n");
+        sb.append("    if hard != resource.RLIM_INFINITY:\n");
+        sb.append("        limit = min(limit, hard)\n");
+        sb.append("    resource.setrlimit(kind, (limit, limit))\n\n");
+        sb.append("def apply_limits():\n");
+        sb.append("    memory, cpu, files, processes = limits\n");
+        sb.append("    if memory > 0:\n");
+        sb.append("        set_limit(resource.RLIMIT_AS, memory)\n");
+        sb.append("    if files > 0:\n");
+        sb.append("        set_limit(resource.RLIMIT_NOFILE, files)\n");
+        sb.append("    if processes > 0:\n");
+        sb.append("        set_limit(resource.RLIMIT_NPROC, processes)\n");
+        sb.append("    if cpu > 0:\n");
+        sb.append("        signal.signal(signal.SIGXCPU, on_cpu_limit)\n\n");
+        sb.append("def start_cpu_limit():\n");
+        sb.append("    if limits[1] > 0:\n");
+        sb.append("        usage = resource.getrusage(resource.RUSAGE_SELF)\n");
+        sb.append("        used = int(usage.ru_utime + usage.ru_stime) + 1\n");
+        sb.append("        hard = resource.getrlimit(resource.RLIMIT_CPU)[1]\n");
+        sb.append("        soft = used + limits[1]\n");
+        sb.append("        if hard != resource.RLIM_INFINITY:\n");
+        sb.append("            soft = min(soft, hard)\n");
+        sb.append("        resource.setrlimit(resource.RLIMIT_CPU, (soft, hard))\n\n");
+        sb.append("def stop_cpu_limit():\n");
+        sb.append("    if limits[1] > 0:\n");
+        sb.append("        hard = resource.getrlimit(resource.RLIMIT_CPU)[1]\n");
+        sb.append("        resource.setrlimit(resource.RLIMIT_CPU, (hard, hard))\n\n");
+
+        // Function for telling which limit (if any) an exception raised by the code
+        // under test comes from; it returns that limit's marker, or None
+        sb.append("def limit_hit(error):\n");
+        sb.append("    memory, cpu, files, processes = limits\n");
+        sb.append("    if isinstance(error, CpuLimitExceeded):\n");
+        sb.append("        return \"").append(OutputDigest.format(OutputDigest.CPU_LIMIT))
+            .append("\"\n");
+        sb.append("    if memory > 0 and (isinstance(error, MemoryError) or " +
+            "isinstance(error, OSError) and error.errno == errno.ENOMEM):\n");
+        sb.append("        return \"")
+            .append(OutputDigest.format(OutputDigest.MEMORY_LIMIT)).append("\"\n");
+        sb.append("    if files > 0 and isinstance(error, OSError) and error.errno in " +
+            "(errno.EMFILE, errno.ENFILE):\n");
+        sb.append("        return \"")
+            .append(OutputDigest.format(OutputDigest.OPEN_FILES_LIMIT)).append("\"\n");
+        sb.append("    if processes > 0 and isinstance(error, OSError) and " +
+            "error.errno == errno.EAGAIN:\n");
+        sb.append("        return \"")
+            .append(OutputDigest.format(OutputDigest.PROCESS_LIMIT)).append("\"\n");
+        sb.append("    return None\n\n");
+
+        // Functions for loading (and caching) the buggy implementations and the
+        // solution
+        sb.append("def impl_spec(impl_name):\n");
+        sb.append("    path = os.path.join(impl_dir, impl_name)\n");
+        sb.append("    module_name = \"feat_impl_\" + impl_name.encode().hex()\n");
+        sb.append("    return importlib.util.spec_from_file_location(module_name, " +
+            "path)\n\n");
+        sb.append("def load_impl(impl_name):\n");
+        sb.append("    if impl_name not in modules:\n");
+        sb.append("        spec = impl_spec(impl_name)\n");
+        sb.append("        mod = importlib.util.module_from_spec(spec)\n");
+        sb.append("        sys.modules[spec.name] = mod\n");
+        sb.append("        try:\n");
+        sb.append("            spec.loader.exec_module(mod)\n");
+        sb.append("        except BaseException:\n");
+        sb.append("            del sys.modules[spec.name]\n");
+        sb.append("            raise\n");
+        sb.append("        modules[impl_name] = mod\n");
+        sb.append("    return modules[impl_name]\n\n");
+        sb.append("def load_solution(path):\n");
+        sb.append("    if path not in modules:\n");
+        sb.append("        spec = importlib.util.spec_from_file_location(\"solution\", " +
+            "path)\n");
+        sb.append("        mod = importlib.util.module_from_spec(spec)\n");
+        sb.append("        spec.loader.exec_module(mod)\n");
+        sb.append("        modules[path] = mod\n");
+        sb.append("    return modules[path]\n\n");
+
+        // Functions for decoding a test case's arguments, as encoded by
+        // APyObj.encode(); each returns the decoded value and the position after it
+        sb.append("def decode_value(data, pos):\n");
+        sb.append("    tag = chr(data[pos])\n");
+        sb.append("    pos += 1\n");
+        sb.append("    if tag == \"i\":\n");
+        sb.append("        return struct.unpack_from(\">i\", data, pos)[0], pos + 4\n");
+        sb.append("    if tag == \"b\":\n");
+        sb.append("        return data[pos] != 0, pos + 1\n");
+        sb.append("    size = struct.unpack_from(\">I\", data, pos)[0]\n");
+        sb.append("    pos += 4\n");
+        sb.append("    if tag == \"s\":\n");
+        sb.append("        return data[pos:pos + size].decode(), pos + size\n");
+        sb.append("    if tag == \"f\":\n");
+        sb.append("        return float(data[pos:pos + size].decode()), pos + size\n");
+        sb.append("    if tag == \"d\":\n");
+        sb.append("        value = {}\n");
+        sb.append("        for _ in range(size):\n");
+        sb.append("            key, pos = decode_value(data, pos)\n");
+        sb.append("            value[key], pos = decode_value(data, pos)\n");
+        sb.append("        return value, pos\n");
+        sb.append("    items = []\n");
+        sb.append("    for _ in range(size):\n");
+        sb.append("        item, pos = decode_value(data, pos)\n");
+        sb.append("        items.append(item)\n");
+        sb.append("    if tag == \"l\":\n");
+        sb.append("        return items, pos\n");
+        sb.append("    if tag == \"t\":\n");
+        sb.append("        return tuple(items), pos\n");
+        sb.append("    if tag == \"e\":\n");
+        sb.append("        return set(items), pos\n");
+        sb.append("    raise ValueError(\"unknown type tag \" + tag)\n\n");
+        sb.append("def decode_args(data):\n");
+        sb.append("    count = struct.unpack_from(\">I\", data, 0)[0]\n");
+        sb.append("    args = []\n");
+        sb.append("    pos = 4\n");
+        sb.append("    for _ in range(count):\n");
+        sb.append("        arg, pos = decode_value(data, pos)\n");
+        sb.append("        args.append(arg)\n");
+        sb.append("    return args\n\n");
+
+        // Functions for digesting a returned value (see OutputDigest). Values that
+        // compare equal encode the same: bools, integral floats and ints share one
+        // encoding, and the items of sets and dicts are sorted by their encodings.
+        // Every encoding is prefix-free, so concatenating them is unambiguous; values
+        // of any other type are encoded by their repr.
+        sb.append("def canonical(value, parts):\n");
+        sb.append("    if value is None:\n");
+        sb.append("        parts.append(b\"N\")\n");
+        sb.append("    elif isinstance(value, (bool, int)):\n");
+        sb.append("        parts.append(b\"i%d;\" % value)\n");
+        sb.append("    elif isinstance(value, float):\n");
+        sb.append("        if value != value:\n");
+        sb.append("            parts.append(b\"n\")\n");
+        sb.append("        elif value.is_integer():\n");
+        sb.append("            parts.append(b\"i%d;\" % int(value))\n");
+        sb.append("        else:\n");
+        sb.append("            parts.append(b\"f\" + repr(value).encode() + b\";\")\n");
+        sb.append("    elif isinstance(value, complex) and value.imag == 0:\n");
+        sb.append("        canonical(value.real, parts)\n");
+        sb.append("    elif isinstance(value, str):\n");
+        sb.append("        data = value.encode(\"utf-8\", \"surrogatepass\")\n");
+        sb.append("        parts.append(b\"s%d:\" % len(data) + data)\n");
+        sb.append("    elif isinstance(value, (bytes, bytearray)):\n");
+        sb.append("        parts.append(b\"y%d:\" % len(value) + bytes(value))\n");
+        sb.append("    elif isinstance(value, (list, tuple)):\n");
+        sb.append("        tag = b\"l\" if isinstance(value, list) else b\"t\"\n");
+        sb.append("        parts.append(tag + b\"%d:\" % len(value))\n");
+        sb.append("        for item in value:\n");
+        sb.append("            canonical(item, parts)\n");
+        sb.append("    elif isinstance(value, (set, frozenset)):\n");
+        sb.append("        items = sorted(encode(item) for item in value)\n");
+        sb.append("        parts.append(b\"e%d:\" % len(items) + b\"\".join(items))\n");
+        sb.append("    elif isinstance(value, dict):\n");
+        sb.append("        items = sorted(encode(key) + encode(item) " +
+            "for key, item in value.items())\n");
+        sb.append("        parts.append(b\"d%d:\" % len(items) + b\"\".join(items))\n");
+        sb.append("    else:\n");
+        sb.append("        data = repr(value).encode(\"utf-8\", \"surrogatepass\")\n");
+        sb.append("        parts.append(b\"r%d:\" % len(data) + data)\n\n");
+        sb.append("def encode(value):\n");
+        sb.append("    parts = []\n");
+        sb.append("    canonical(value, parts)\n");
+        sb.append("    return b\"\".join(parts)\n\n");
+        sb.append("def digest(value):\n");
+        sb.append("    data = hashlib.blake2b(encode(value), digest_size=8).digest()\n");
+        sb.append("    return \"%016x\" % (int.from_bytes(data, \"big\") | 1 << 63)\n\n");
+
+        // Function for running the solution, to get the expected results
+        sb.append("def run_solution(solution_path, fname, args):\n");
+        sb.append("    func = getattr(load_solution(solution_path), fname)\n");
+        sb.append("    return func(*args)\n\n");
+
+        // Function for running a buggy implementation, to get the digest of its
+        // results for comparing to the expected results
+        sb.append("def test_buggy_impl(impl_name, fname, args):\n");
+        sb.append("    start_cpu_limit()\n");
+        sb.append("    try:\n");
+        sb.append("        mod = load_impl(impl_name)\n");
+        sb.append("        func = getattr(mod, fname)\n");
+        sb.append("        value = func(*args)\n");
+        sb.append("    finally:\n");
+        sb.append("        stop_cpu_limit()\n");
+        sb.append("    return digest(value)\n\n");
+
+        // Functions for reading requests and writing responses in worker mode; every
+        // field of a request but the last is text, and the last holds the encoded
+        // arguments
+        sb.append("def read_exact(stream, size):\n");
+        sb.append("    data = stream.read(size)\n");
+        sb.append("    if len(data) < size:\n");
+        sb.append("        raise EOFError\n");
+        sb.append("    return data\n\n");
+        sb.append("def read_request(stream):\n");
+        sb.append("    count = struct.unpack(\">I\", read_exact(stream, 4))[0]\n");
+        sb.append("    fields = []\n");
+        sb.append("    for _ in range(count):\n");
+        sb.append("        size = struct.unpack(\">I\", read_exact(stream, 4))[0]\n");
+        sb.append("        fields.append(read_exact(stream, size))\n");
+        sb.append("    return [field.decode() for field in fields[:-1]], fields[-1]\n\n");
+        sb.append("def write_response(stream, text):\n");
+        sb.append("    data = text.encode()\n");
+        sb.append("    stream.write(struct.pack(\">I\", len(data)) + data)\n");
+        sb.append("    stream.flush()\n\n");
+
+        // Channels over which a worker reads requests and writes responses: stdin and
+        // stdout, or the two rings of a SharedMemoryChannel, whose file is named in the
+        // first request on stdin. A message is in the ring if its one-byte doorbell on
+        // the pipe is "R", and follows on the pipe if it is "P"
+        sb.append("class PipeChannel:\n");
+        sb.append("    def __init__(self):\n");
+        sb.append("        self.requests = sys.stdin.buffer\n");
+        sb.append("        self.responses = sys.stdout.buffer\n\n");
+        sb.append("    def read_request(self):\n");
+        sb.append("        return read_request(self.requests)\n\n");
+        sb.append("    def write_response(self, text):\n");
+        sb.append("        write_response(self.responses, text)\n\n");
+        sb.append("class RingChannel(PipeChannel):\n");
+        sb.append("    def __init__(self):\n");
+        sb.append("        super().__init__()\n");
+        sb.append("        path = read_request(self.requests)[0][0]\n");
+        sb.append("        with open(path, \"r+b\") as file:\n");
+        sb.append("            self.ring = mmap.mmap(file.fileno(), 0)\n");
+        sb.append("        self.half = len(self.ring) // 2\n");
+        sb.append("        self.capacity = self.half - 16\n\n");
+        sb.append("    def read_request(self):\n");
+        sb.append("        if read_exact(self.requests, 1) == b\"P\":\n");
+        sb.append("            return read_request(self.requests)\n");
+        sb.append("        return read_request(io.BytesIO(self.take(0)))\n\n");
+        sb.append("    def write_response(self, text):\n");
+        sb.append("        if self.put(self.half, text.encode()):\n");
+        sb.append("            self.responses.write(b\"R\")\n");
+        sb.append("            self.responses.flush()\n");
+        sb.append("        else:\n");
+        sb.append("            self.responses.write(b\"P\")\n");
+        sb.append("            write_response(self.responses, text)\n\n");
+        sb.append("    def take(self, base):\n");
+        sb.append("        head = struct.unpack_from(\">Q\", self.ring, base)[0]\n");
+        sb.append("        size = struct.unpack(\">I\", self.copy_out(base, head, 4))" +
+            "[0]\n");
+        sb.append("        data = self.copy_out(base, head + 4, size)\n");
+        sb.append("        struct.pack_into(\">Q\", self.ring, base, head + 4 + size)\n");
+        sb.append("        return data\n\n");
+        sb.append("    def put(self, base, data):\n");
+        sb.append("        head, tail = struct.unpack_from(\">QQ\", self.ring, base)\n");
+        sb.append("        if tail - head + 4 + len(data) > self.capacity:\n");
+        sb.append("            return False\n");
+        sb.append("        self.copy_in(base, tail, struct.pack(\">I\", len(data)) + " +
+            "data)\n");
+        sb.append("        struct.pack_into(\">Q\", self.ring, base + 8, tail + 4 + " +
+            "len(data))\n");
+        sb.append("        return True\n\n");
+        sb.append("    def copy_out(self, base, pos, size):\n");
+        sb.append("        start = base + 16 + pos % self.capacity\n");
+        sb.append("        first = min(size, base + 16 + self.capacity - start)\n");
+        sb.append("        data = self.ring[start:start + first]\n");
+        sb.append("        rest = self.ring[base + 16:base + 16 + size - first]\n");
+        sb.append("        return data + rest\n\n");
+        sb.append("    def copy_in(self, base, pos, data):\n");
+        sb.append("        start = base + 16 + pos % self.capacity\n");
+        sb.append("        first = min(len(data), base + 16 + self.capacity - start)\n");
+        sb.append("        self.ring[start:start + first] = data[:first]\n");
+        sb.append("        self.ring[base + 16:base + 16 + len(data) - first] = " +
+            "data[first:]\n\n");
+        sb.append("def open_channel(argv):\n");
+        sb.append("    if argv and argv[0] == \"--shm\":\n");
+        sb.append("        return RingChannel(), argv[1:]\n");
+        sb.append("    return PipeChannel(), argv\n\n");
+
+        // Function for handling a single request, which holds the command-line args
+        // for the wrapper and the encoded arguments
+        sb.append("def handle_request(argv, data):\n");
+        sb.append("    args = decode_args(data)\n");
+        sb.append("    return test_buggy_impl(argv[0], argv[1], args)\n\n");
+
+        // Any failure (including the code under test trying to exit) is reported as
+        // an error, unless it comes from a resource limit
+        sb.append("def run_request(argv, data):\n");
+        sb.append("    try:\n");
+        sb.append("        return handle_request(argv, data)\n");
+        sb.append("    except BaseException as error:\n");
+        sb.append("        return limit_hit(error) or error_marker\n\n");
+
+        // Function for handling a request in a forked child, which sends its result
+        // back to the parent through a pipe. The resource limits are set in the child,
+        // since the process limit counts every process of the user and would otherwise
+        // keep the server from forking.
+        sb.append("def run_forked(argv, data):\n");
+        sb.append("    read_fd, write_fd = os.pipe()\n");
+        sb.append("    pid = os.fork()\n");
+        sb.append("    if pid == 0:\n");
+        sb.append("        os.close(read_fd)\n");
+        sb.append("        try:\n");
+        sb.append("            apply_limits()\n");
+        sb.append("            result = run_request(argv, data)\n");
+        sb.append("        except BaseException:\n");
+        sb.append("            result = \"\"\n");
+        sb.append("        with os.fdopen(write_fd, \"wb\") as pipe:\n");
+        sb.append("            pipe.write(result.encode())\n");
+        sb.append("        os._exit(0)\n");
+        sb.append("    os.close(write_fd)\n");
+        sb.append("    with os.fdopen(read_fd, \"rb\") as pipe:\n");
+        sb.append("        result = pipe.read().decode(errors=\"replace\")\n");
+        sb.append("    os.waitpid(pid, 0)\n");
+        sb.append("    return result\n\n");
+
+        // Worker loop; anything the code under test prints is discarded so that it
+        // can't corrupt the response frames
+        sb.append("def serve(fork, channel):\n");
+        sb.append("    sys.stdout = open(os.devnull, \"w\")\n");
+        sb.append("    while True:\n");
+        sb.append("        try:\n");
+        sb.append("            argv, data = channel.read_request()\n");
+        sb.append("        except EOFError:\n");
+        sb.append("            break\n");
+        sb.append("        if fork:\n");
+        sb.append("            result = run_forked(argv, data)\n");
+        sb.append("        else:\n");
+        sb.append("            result = run_request(argv, data)\n");
+        sb.append("        channel.write_response(result)\n\n");
+
+        // Function for preloading everything a forked child will need, so that no
+        // child has to import it again; failures are left for the children to report
+        sb.append("def preload(impl_name):\n");
+        sb.append("    try:\n");
+        sb.append("        load_impl(impl_name)\n");
+        sb.append("    except BaseException:\n");
+        sb.append("        pass\n\n");
+
+        // Function for loading the encoded arguments of every test case for batch mode
+        sb.append("def load_cases():\n");
+        sb.append("    with open(os.path.join(here, \"cases.bin\"), \"rb\") as file:\n");
+        sb.append("        data = file.read()\n");
+        sb.append("    count = struct.unpack_from(\">I\", data, 0)[0]\n");
+        sb.append("    cases = []\n");
+        sb.append("    pos = 4\n");
+        sb.append("    for _ in range(count):\n");
+        sb.append("        size = struct.unpack_from(\">I\", data, pos)[0]\n");
+        sb.append("        cases.append(data[pos + 4:pos + 4 + size])\n");
+        sb.append("        pos += 4 + size\n");
+        sb.append("    return cases\n\n");
+
+        // Batch loop; as above, anything the code under test prints is discarded
+        sb.append("def run_batch(impl_name, fname):\n");
+        sb.append("    order = [int(case_num) for case_num in " +
+            "sys.stdin.buffer.read().split()]\n");
+        sb.append("    cases = load_cases()\n");
+        sb.append("    out = sys.stdout\n");
+        sb.append("    sys.stdout = open(os.devnull, \"w\")\n");
+        sb.append("    for case_num in order:\n");
+        sb.append("        try:\n");
+        sb.append("            args = decode_args(cases[case_num])\n");
+        sb.append("            result = test_buggy_impl(impl_name, fname, args)\n");
+        sb.append("        except BaseException as error:\n");
+        sb.append("            result = limit_hit(error) or error_marker\n");
+        sb.append("        print(case_num, result, file=out, flush=True)\n\n");
+
+        // Batch loop for the solution, which times each test case; as above, anything
+        // the solution prints is discarded
+        sb.append("def run_expected_batch(solution_path, fname):\n");
+        sb.append("    data = sys.stdin.buffer.read()\n");
+        sb.append("    out = sys.stdout.buffer\n");
+        sb.append("    sys.stdout = open(os.devnull, \"w\")\n");
+        sb.append("    try:\n");
+        sb.append("        load_solution(solution_path)\n");
+        sb.append("    except BaseException:\n");
+        sb.append("        pass\n");
+        sb.append("    pos = 0\n");
+        sb.append("    while pos < len(data):\n");
+        sb.append("        case_num, size = struct.unpack_from(\">II\", data, pos)\n");
+        sb.append("        args = decode_args(data[pos + 8:pos + 8 + size])\n");
+        sb.append("        pos += 8 + size\n");
+        sb.append("        start = time.perf_counter_ns()\n");
+        sb.append("        try:\n");
+        sb.append("            value = run_solution(solution_path, fname, args)\n");
+        sb.append("            elapsed = time.perf_counter_ns() - start\n");
+        sb.append("            result = digest(value) + \"\\n\" + repr(value)\n");
+        sb.append("        except BaseException:\n");
+        sb.append("            elapsed = time.perf_counter_ns() - start\n");
+        sb.append("            result = error_marker + \"\\n\"\n");
+        sb.append("        write_response(out, \"%d %d %s\" % (case_num, elapsed, " +
+            "result))\n\n");
+
+        // Functions for compiling files to bytecode that is validated by the hash of
+        // their contents (flags 3 in the header of a .pyc file); bytecode that is
+        // already up to date is left alone
+        sb.append("def compile_source(spec):\n");
+        sb.append("    with open(spec.origin, \"rb\") as file:\n");
+        sb.append("        source_hash = importlib.util.source_hash(file.read())\n");
+        sb.append("    flags = (3).to_bytes(4, \"little\")\n");
+        sb.append("    header = importlib.util.MAGIC_NUMBER + flags + source_hash\n");
+        sb.append("    try:\n");
+        sb.append("        with open(spec.cached, \"rb\") as file:\n");
+        sb.append("            if file.read(len(header)) == header:\n");
+        sb.append("                return\n");
+        sb.append("    except OSError:\n");
+        sb.append("        pass\n");
+        sb.append("    py_compile.compile(spec.origin, spec.cached, doraise=True, " +
+            "invalidation_mode=py_compile.PycInvalidationMode.CHECKED_HASH)\n\n");
+        sb.append("def compile_solution(solution_path):\n");
+        sb.append("    try:\n");
+        sb.append("        compile_source(importlib.util.spec_from_file_location(" +
+            "\"solution\", solution_path))\n");
+        sb.append("    except BaseException:\n");
+        sb.append("        pass\n\n");
+
+        // Function for fingerprinting an implementation by its tokens, leaving out
+        // comments, blank lines and how far each block is indented, so that files
+        // differing only in those ways get the same fingerprint. A file that can't be
+        // tokenized is fingerprinted by its raw contents instead, and one that can't be
+        // read gets no fingerprint ("-"). The tokenizer is only imported here, as no
+        // other mode needs it.
+        sb.append("def fingerprint(impl_name):\n");
+        sb.append("    import tokenize\n");
+        sb.append("    try:\n");
+        sb.append("        path = os.path.join(impl_dir, impl_name)\n");
+        sb.append("        with open(path, \"rb\") as file:\n");
+        sb.append("            source = file.read()\n");
+        sb.append("    except OSError:\n");
+        sb.append("        return \"-\"\n");
+        sb.append("    skipped = (tokenize.ENCODING, tokenize.COMMENT, tokenize.NL)\n");
+        sb.append("    blank = (tokenize.INDENT, tokenize.NEWLINE)\n");
+        sb.append("    try:\n");
+        sb.append("        parts = []\n");
+        sb.append("        tokens = tokenize.tokenize(io.BytesIO(source).readline)\n");
+        sb.append("        for token in tokens:\n");
+        sb.append("            if token.type not in skipped:\n");
+        sb.append("                text = \"\" if token.type in blank " +
+            "else token.string\n");
+        sb.append("                parts.append(\"%d %d:%s\" % (token.type, len(text), " +
+            "text))\n");
+        sb.append("        data = \"\".join(parts).encode(\"utf-8\", " +
+            "\"surrogatepass\")\n");
+        sb.append("    except Exception:\n");
+        sb.append("        data = b\"raw:\" + source\n");
+        sb.append("    return hashlib.blake2b(data, digest_size=16).hexdigest()\n\n");
+
+        // Functions for checking that implementations compile and import, before any
+        // test case is run on them. Each import runs in a forked child, so that a
+        // failure (or anything else the import does) can't affect the checks of the
+        // others; a child that runs out of time is killed and not reported.
+        sb.append("def import_fails(impl_name, timeout):\n");
+        sb.append("    pid = os.fork()\n");
+        sb.append("    if pid == 0:\n");
+        sb.append("        try:\n");
+        sb.append("            apply_limits()\n");
+        sb.append("            start_cpu_limit()\n");
+        sb.append("            load_impl(impl_name)\n");
+        sb.append("        except BaseException:\n");
+        sb.append("            os._exit(1)\n");
+        sb.append("        os._exit(0)\n");
+        sb.append("    deadline = time.monotonic() + timeout\n");
+        sb.append("    while True:\n");
+        sb.append("        done, status = os.waitpid(pid, os.WNOHANG)\n");
+        sb.append("        if done:\n");
+        sb.append("            return os.WIFEXITED(status) and " +
+            "os.WEXITSTATUS(status) != 0\n");
+        sb.append("        if time.monotonic() >= deadline:\n");
+        sb.append("            os.kill(pid, signal.SIGKILL)\n");
+        sb.append("            os.waitpid(pid, 0)\n");
+        sb.append("            return False\n");
+        sb.append("        time.sleep(0.001)\n\n");
+        sb.append("def impl_is_broken(impl_name, timeout):\n");
+        sb.append("    spec = impl_spec(impl_name)\n");
+        sb.append("    if spec is None or not os.path.isfile(spec.origin):\n");
+        sb.append("        return False\n");
+        sb.append("    try:\n");
+        sb.append("        compile_source(spec)\n");
+        sb.append("    except py_compile.PyCompileError:\n");
+        sb.append("        return True\n");
+        sb.append("    except BaseException:\n");
+        sb.append("        pass\n");
+        sb.append("    return import_fails(impl_name, timeout)\n\n");
+        sb.append("def check_impls(impl_names, timeout):\n");
+        sb.append("    out = sys.stdout\n");
+        sb.append("    sys.stdout = open(os.devnull, \"w\")\n");
+        sb.append("    for impl_name in impl_names:\n");
+        sb.append("        key = fingerprint(impl_name)\n");
+        sb.append("        status = \"broken\" if impl_is_broken(impl_name, timeout) " +
+            "else \"ok\"\n");
+        sb.append("        print(key, status, impl_name, file=out, flush=True)\n\n");
+
+        // Footer to make the function executable from the command line
+        sb.append("if __name__ == \"__main__\":\n");
+        sb.append("    if sys.argv[1] == \"--worker\":\n");
+        sb.append("        channel, rest = open_channel(sys.argv[2:])\n");
+        sb.append("        apply_limits()\n");
+        sb.append("        serve(False, channel)\n");
+        sb.append("    elif sys.argv[1] == \"--fork\":\n");
+        sb.append("        channel, rest = open_channel(sys.argv[2:])\n");
+        sb.append("        preload(rest[0])\n");
+        sb.append("        serve(True, channel)\n");
+        sb.append("    elif sys.argv[1] == \"--batch\":\n");
+        sb.append("        apply_limits()\n");
+        sb.append("        run_batch(sys.argv[2], sys.argv[3])\n");
+        sb.append("    elif sys.argv[1] == \"--compile\":\n");
+        sb.append("        compile_solution(sys.argv[2])\n");
+        sb.append("    elif sys.argv[1] == \"--check\":\n");
+        sb.append("        impl_names = sys.stdin.buffer.read().decode().splitlines()\n");
+        sb.append("        check_impls(impl_names, int(sys.argv[2]) / 1000)\n");
+        sb.append("    elif sys.argv[1] == \"--expected-batch\":\n");
+        sb.append("        run_expected_batch(sys.argv[2], sys.argv[3])\n");
+        sb.append("    else:\n");
+        sb.append("        impl_name = sys.argv[1]\n");
+        sb.append("        fname = sys.argv[2]\n");
+        sb.append("        args = decode_args(sys.stdin.buffer.read())\n");
+        sb.append("        apply_limits()\n");
+        sb.append("        try:\n");
+        sb.append("            result = test_buggy_impl(impl_name, fname, args)\n");
+        sb.append("        except BaseException as error:\n");
+        sb.append("            result = limit_hit(error) or error_marker\n");
+        sb.append("        print (result)");
+        String wrapperContents = sb.toString();
+
+        // Create the Python wrapper file including the above code
+        FileWriter writer = new FileWriter(this.getWrapperPath());
+        writer.write(wrapperContents);
+        writer.close();
+    }
+
+    /**
+     * Builds a Python string literal holding the given text, escaping anything that
+     * isn't printable ASCII so that the literal survives any file encoding.
+     *
+     * @param text the text to hold
+     * @return the Python string literal
+     */
+    private static String toPyLiteral(String text) {
+        StringBuilder literal = new StringBuilder("\"");
+        text.codePoints().forEach(codePoint -> {
+            if (codePoint == '\\' || codePoint == '"') {
+                literal.append('\\').appendCodePoint(codePoint);
+            } else if (codePoint >= 0x20 && codePoint < 0x7f) {
+                literal.appendCodePoint(codePoint);
+            } else {
+                literal.append(String.format("\\U%08x", codePoint));
+            }
+        });
+        return literal.append('"').toString();
+    }
+
+    /**
+     * Outputs the encoded arguments of every test case to the file cases.bin, for use by
+     * the wrapper in batch mode.
+     *
+     * @throws IOException if the cases file cannot be created or written to
+     */
+    private void createCasesFile() throws IOException {
+        // Output the cases to cases.bin, within the workspace
+        this.writeCases(this.getWorkspace().resolve("cases.bin"));
+    }
+
+    /**
+     * Outputs the encoded arguments of every test case to the given file. The file holds
+     * a 4-byte count of test cases, followed by each test case's encoded arguments
+     * prefixed by their 4-byte length; all integers are big-endian.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be created or written to
+     */
+    void writeCases(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(this.tests.size());
+            for (int i = 0; i < this.tests.size(); i++) {
+                byte[] encodedArgs = this.getEncodedArgs(i);
+                out.writeInt(encodedArgs.length);
+                out.write(encodedArgs);
+            }
+        }
+    }
+
+    /**
+     * A way of testing a single implementation file.
+     */
+    private interface FileTest {
+
+        /**
+         * Tests a single implementation file.
+         *
+         * @param filename the name of the implementation file to test
+         * @return the results of testing the file
+         * @throws IOException if the file to run or its output cannot be accessed
+         */
+        ImplResult run(String filename) throws IOException;
+    }
+
+    /**
+     * A task run on one batch of items at a time.
+     *
+     * @param <T> the type of the items
+     */
+    private interface BatchTask<T> {
+
+        /**
+         * Runs the task on a single batch of items.
+         *
+         * @param batch the items in the batch
+         * @throws IOException if the task fails
+         */
+        void run(List<T> batch) throws IOException;
     }
 }
@@ -0,0 +1,23 @@
+package main.rice.test;
+
+/**
+ * The ways in which requests and responses travel between a Tester and its long-lived
+ * Python processes (the workers of ExecutionMode.POOL and the fork servers of
+ * ExecutionMode.FORK_SERVER). Both carry exactly the same frames (see PyWorker).
+ */
+public enum Transport {
+
+    /**
+     * Writes every request to the process's stdin and reads every response from its
+     * stdout.
+     */
+    PIPE,
+
+    /**
+     * Places every request and response in a memory-mapped file shared with the
+     * process, which holds a single-producer, single-consumer ring buffer for each
+     * direction; only a one-byte doorbell goes through the pipes, to wake the other
+     * side. A message too large for its ring goes through the pipes instead.
+     */
+    SHARED_MEMORY
+}
@@ -0,0 +1,308 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * A long-running testing session for a directory of buggy implementations that is
+ * still filling up. The base test set, the expected results and the current results of
+ * testing are kept in memory, and the directory is watched so that only implementation
+ * files that are new or have been modified get tested. Subdirectories (such as one per
+ * student) are watched too, including those created while the session runs. After every
+ * change, the updated results are published.
+ * <p>
+ * Files are indexed in the order in which they are first seen (those already present
+ * when the session starts are indexed in sorted order, as in Tester.runTests), so a
+ * file keeps its index for the whole session. A deleted file's index is not reused.
+ */
+public class WatchSession {
+
+    /**
+     * How long to wait after a change before testing, so that a file that is still being
+     * written (or a burst of files being copied in) is picked up in one go
+     */
+    private static final long SETTLE_MILLIS = 200;
+
+    /**
+     * The Tester used to test each file
+     */
+    private final Tester tester;
+
+    /**
+     * Receives the updated results after every change
+     */
+    private final Consumer<TestResults> publisher;
+
+    /**
+     * The index assigned to each implementation file seen so far
+     */
+    private final Map<String, Integer> fileIndices;
+
+    /**
+     * The per-case sets of files caught, as in TestResults
+     */
+    private final List<Set<Integer>> caseToFiles;
+
+    /**
+     * The per-case sets of files timed out on, as in TestResults
+     */
+    private final List<Set<Integer>> caseToTimeouts;
+
+    /**
+     * The set of files that failed one or more tests
+     */
+    private final Set<Integer> wrongSet;
+
+    /**
+     * The behavior signature of each file tested so far, by index, as in TestResults
+     */
+    private final Map<Integer, long[]> signatures;
+
+    /**
+     * Constructor for a WatchSession; nothing is run until run() is called.
+     *
+     * @param tester    the Tester used to compute the expected results and test each
+     *                  file
+     * @param publisher receives the updated results after every change
+     */
+    public WatchSession(Tester tester, Consumer<TestResults> publisher) {
+        this.tester = tester;
+        this.publisher = publisher;
+        this.fileIndices = new HashMap<>();
+        this.caseToFiles = new ArrayList<>();
+        this.caseToTimeouts = new ArrayList<>();
+        for (int i = 0; i < tester.getTests().size(); i++) {
+            this.caseToFiles.add(new HashSet<>());
+            this.caseToTimeouts.add(new HashSet<>());
+        }
+        this.wrongSet = new HashSet<>();
+        this.signatures = new HashMap<>();
+    }
+
+    /**
+     * Returns a snapshot of the current results of testing.
+     *
+     * @return the current results, covering every file tested so far
+     */
+    public synchronized TestResults getResults() {
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        List<Set<Integer>> caseToTimeouts = new ArrayList<>();
+        for (int i = 0; i < this.caseToFiles.size(); i++) {
+            caseToFiles.add(new HashSet<>(this.caseToFiles.get(i)));
+            caseToTimeouts.add(new HashSet<>(this.caseToTimeouts.get(i)));
+        }
+        List<long[]> signatures = new ArrayList<>();
+        for (int i = 0; i < this.fileIndices.size(); i++) {
+            signatures.add(this.signatures.get(i));
+        }
+        return new TestResults(this.tester.getTests(), caseToFiles,
+            new HashSet<>(this.wrongSet), caseToTimeouts, false, signatures);
+    }
+
+    /**
+     * Computes the expected results, tests every file already in the directory, and then
+     * watches the directory, testing files as they are added or modified and dropping
+     * the results of files that are deleted. Runs until the calling thread is
+     * interrupted.
+     *
+     * @throws IOException if the directory cannot be watched or a file cannot be tested
+     */
+    public void run() throws IOException {
+        this.tester.computeExpectedResults();
+        this.tester.createHarnessFiles();
+
+        Path dir = Path.of(this.tester.getImplDirPath());
+        try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+            // Start watching before listing the directory, so nothing can slip through
+            Map<WatchKey, Path> dirs = new HashMap<>();
+            this.watchTree(watcher, dir, dirs);
+            this.update(new TreeSet<>(this.tester.getImplFilenames()), Set.of());
+
+            while (true) {
+                WatchKey key = watcher.take();
+                Thread.sleep(SETTLE_MILLIS);
+
+                // Gather every change that has happened in the meantime
+                Set<String> changed = new TreeSet<>();
+                Set<String> deleted = new TreeSet<>();
+                do {
+                    Path eventDir = dirs.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW || eventDir == null) {
+                            // Some events were lost, so re-check every file
+                            changed.addAll(this.tester.getImplFilenames());
+                            continue;
+                        }
+                        Path path = eventDir.resolve((Path) event.context());
+                        String name = path.getFileName().toString();
+
+                        // Watch new subdirectories too, and test the files that were
+                        // already in them before they were watched
+                        if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                            if (this.tester.isImplDirname(name)) {
+                                this.watchTree(watcher, path, dirs);
+                                changed.addAll(this.tester.listImplFilenames(path));
+                            }
+                            continue;
+                        }
+
+                        // A deleted subdirectory takes its files with it
+                        String filename = this.tester.toImplFilename(path);
+                        if (event.kind() == ENTRY_DELETE) {
+                            for (String known : this.getKnownFilenames()) {
+                                if (known.startsWith(filename + "/")) {
+                                    changed.remove(known);
+                                    deleted.add(known);
+                                }
+                            }
+                        }
+
+                        if (!this.tester.isImplFilename(name)) {
+                            continue;
+                        }
+                        if (event.kind() == ENTRY_DELETE) {
+                            changed.remove(filename);
+                            deleted.add(filename);
+                        } else {
+                            deleted.remove(filename);
+                            changed.add(filename);
+                        }
+                    }
+
+                    // Stop tracking directories that no longer exist
+                    if (!key.reset()) {
+                        dirs.remove(key);
+                    }
+                } while ((key = watcher.poll()) != null);
+
+                this.update(changed, deleted);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts watching a directory and every subdirectory of it that may hold
+     * implementations.
+     *
+     * @param watcher the watch service to register the directories with
+     * @param dir     the directory to watch
+     * @param dirs    the directory watched by each watch key, to which the new
+     *                directories are added
+     * @throws IOException if a directory cannot be watched
+     */
+    private void watchTree(WatchService watcher, Path dir, Map<WatchKey, Path> dirs)
+        throws IOException {
+        List<Path> subdirs;
+        try (var walk = Files.walk(dir)) {
+            subdirs = walk.filter(Files::isDirectory).toList();
+        }
+        for (Path subdir : subdirs) {
+            // Skip anything under a hidden directory or bytecode cache
+            boolean watched = true;
+            for (Path part : dir.relativize(subdir)) {
+                if (!part.toString().isEmpty()
+                    && !this.tester.isImplDirname(part.toString())) {
+                    watched = false;
+                }
+            }
+            if (watched) {
+                dirs.put(subdir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY,
+                    ENTRY_DELETE), subdir);
+            }
+        }
+    }
+
+    /**
+     * @return the names of every implementation file seen so far
+     */
+    private synchronized Set<String> getKnownFilenames() {
+        return new HashSet<>(this.fileIndices.keySet());
+    }
+
+    /**
+     * Drops the results of deleted files, (re-)tests changed files, and publishes the
+     * updated results if anything changed.
+     *
+     * @param changed the names of the files that are new or have been modified
+     * @param deleted the names of the files that have been deleted
+     * @throws IOException if a file cannot be tested
+     */
+    private void update(Set<String> changed, Set<String> deleted) throws IOException {
+        if (changed.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            for (String filename : deleted) {
+                Integer index = this.fileIndices.get(filename);
+                if (index != null) {
+                    this.clearFile(index);
+                }
+            }
+        }
+
+        // Skip files that have disappeared again since the change was seen
+        List<String> filenames = new ArrayList<>();
+        for (String filename : changed) {
+            if (Files.isRegularFile(Path.of(this.tester.getImplDirPath(), filename))) {
+                filenames.add(filename);
+            }
+        }
+
+        // Pooled workers keep implementations imported, so a fresh pool is needed to
+        // pick up modified files
+        try (WorkerPool pool = this.tester.startPool()) {
+            List<ImplResult> fileResults = this.tester.testFiles(filenames, pool);
+            synchronized (this) {
+                for (int i = 0; i < filenames.size(); i++) {
+                    int index = this.fileIndices.computeIfAbsent(filenames.get(i),
+                        filename -> this.fileIndices.size());
+                    this.clearFile(index);
+                    this.recordFile(index, fileResults.get(i));
+                }
+            }
+        }
+
+        this.publisher.accept(this.getResults());
+    }
+
+    /**
+     * Removes every trace of a file from the results.
+     *
+     * @param index the index of the file
+     */
+    private void clearFile(int index) {
+        for (int i = 0; i < this.caseToFiles.size(); i++) {
+            this.caseToFiles.get(i).remove(index);
+            this.caseToTimeouts.get(i).remove(index);
+        }
+        this.wrongSet.remove(index);
+        this.signatures.remove(index);
+    }
+
+    /**
+     * Adds the results of testing a file to the results.
+     *
+     * @param index      the index of the file
+     * @param fileResult the results of testing the file
+     */
+    private void recordFile(int index, ImplResult fileResult) {
+        for (int testIndex : fileResult.getCaughtBy()) {
+            this.caseToFiles.get(testIndex).add(index);
+        }
+        for (int testIndex : fileResult.getTimedOut()) {
+            this.caseToTimeouts.get(testIndex).add(index);
+        }
+        if (fileResult.getCaughtBy().size() > 0) {
+            this.wrongSet.add(index);
+        }
+        this.signatures.put(index,
+            fileResult.getSignature(this.tester.getTests().size()));
+    }
+}
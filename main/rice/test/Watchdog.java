@@ -0,0 +1,105 @@
+package main.rice.test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kills a process (along with every process it has started) if it is still running
+ * once a wall-clock deadline has passed. The deadline can be pushed back whenever the
+ * process shows signs of progress.
+ */
+class Watchdog {
+
+    /**
+     * The single timer thread shared by every watchdog
+     */
+    private static final ScheduledExecutorService TIMER =
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "test-timeout-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /**
+     * The process being watched
+     */
+    private final Process process;
+
+    /**
+     * The time the process is given (from now, or from the latest reset) before it is
+     * killed, in milliseconds; 0 means it is never killed
+     */
+    private final long timeoutMillis;
+
+    /**
+     * The pending kill, if there is one
+     */
+    private ScheduledFuture<?> kill;
+
+    /**
+     * Whether the deadline has passed and the process has been killed
+     */
+    private volatile boolean fired;
+
+    /**
+     * Constructor for a Watchdog; starts the clock immediately.
+     *
+     * @param process       the process to watch
+     * @param timeoutMillis the time the process is given before it is killed, in
+     *                      milliseconds, or 0 to never kill it
+     */
+    Watchdog(Process process, long timeoutMillis) {
+        this.process = process;
+        this.timeoutMillis = timeoutMillis;
+        this.fired = false;
+        this.reset();
+    }
+
+    /**
+     * Restarts the clock, giving the process the full timeout again from now.
+     */
+    synchronized void reset() {
+        this.cancel();
+        if (this.timeoutMillis > 0 && !this.fired) {
+            this.kill = TIMER.schedule(this::fire, this.timeoutMillis,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the clock; the process will not be killed.
+     */
+    synchronized void cancel() {
+        if (this.kill != null) {
+            this.kill.cancel(false);
+            this.kill = null;
+        }
+    }
+
+    /**
+     * @return true if the deadline passed and the process was killed; false otherwise
+     */
+    boolean hasFired() {
+        return this.fired;
+    }
+
+    /**
+     * Kills the process once the deadline has passed.
+     */
+    private void fire() {
+        this.fired = true;
+        killTree(this.process);
+    }
+
+    /**
+     * Forcibly kills a process along with every process it has started.
+     *
+     * @param process the process to kill
+     */
+    static void killTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
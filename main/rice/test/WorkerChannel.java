@@ -0,0 +1,34 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The connection over which a PyWorker sends framed requests to its Python process and
+ * reads back the responses.
+ */
+interface WorkerChannel {
+
+    /**
+     * Sends a single request to the process.
+     *
+     * @param header  the text fields making up the request
+     * @param payload the binary payload of the request
+     * @throws IOException if the process has gone away
+     */
+    void send(List<String> header, byte[] payload) throws IOException;
+
+    /**
+     * Waits for the process's response to the last request.
+     *
+     * @return the response
+     * @throws IOException if the process has gone away
+     */
+    String receive() throws IOException;
+
+    /**
+     * Closes the connection, which lets the process exit cleanly; anything the channel
+     * created is cleaned up.
+     */
+    void close();
+}
@@ -0,0 +1,127 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A fixed-size pool of long-lived PyWorkers. Workers are started lazily, handed out to
+ * one request at a time, and replaced once they have answered a set number of requests
+ * (so that state leaked by the code under test doesn't accumulate forever) or once they
+ * die.
+ */
+class WorkerPool implements AutoCloseable {
+
+    /**
+     * The process builder used to start each worker process
+     */
+    private final ProcessBuilder pb;
+
+    /**
+     * The directory in which workers create their shared memory, or null if they talk
+     * over pipes
+     */
+    private final Path ringDir;
+
+    /**
+     * The number of requests after which a worker is replaced; 0 means never
+     */
+    private final int recycleAfter;
+
+    /**
+     * The workers that have been started and are not currently handling a request
+     */
+    private final Queue<PyWorker> idle;
+
+    /**
+     * Bounds the number of workers that exist at any one time to the pool size
+     */
+    private final Semaphore slots;
+
+    /**
+     * Constructor for a WorkerPool; no workers are started until they are needed.
+     *
+     * @param pb           the process builder used to start each worker process
+     * @param ringDir      the directory in which workers create their shared memory
+     *                     (see PyWorker), or null to talk to them over pipes
+     * @param size         the maximum number of workers
+     * @param recycleAfter the number of requests after which a worker is replaced, or 0
+     *                     to keep workers for the lifetime of the pool
+     */
+    WorkerPool(ProcessBuilder pb, Path ringDir, int size, int recycleAfter) {
+        this.pb = pb;
+        this.ringDir = ringDir;
+        this.recycleAfter = recycleAfter;
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.slots = new Semaphore(Math.max(size, 1));
+    }
+
+    /**
+     * Sends a request to an idle worker (starting one if there is none) and returns its
+     * response. If the worker dies while handling the request, the response is the
+     * empty string, mirroring a process that exited without printing anything.
+     *
+     * @param header        the text fields making up the request
+     * @param payload       the binary payload of the request
+     * @param timeoutMillis the time allowed for the response, in milliseconds, or 0 to
+     *                      wait indefinitely
+     * @return the worker's response
+     * @throws TestTimeoutException if the worker was killed for taking too long
+     * @throws IOException          if a worker process cannot be started
+     */
+    String submit(List<String> header, byte[] payload, long timeoutMillis)
+        throws IOException {
+        try {
+            this.slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a worker");
+        }
+
+        try {
+            PyWorker worker = this.idle.poll();
+            if (worker == null) {
+                worker = new PyWorker(this.pb, this.ringDir);
+            }
+
+            String result;
+            try {
+                result = worker.call(header, payload, timeoutMillis);
+            } catch (TestTimeoutException e) {
+                // The worker has been killed, so drop it and let the caller know
+                worker.close();
+                throw e;
+            } catch (IOException e) {
+                // The worker died mid-request (e.g. the code under test exited the
+                // interpreter), so drop it; a fresh one will be started next time
+                worker.close();
+                return "";
+            }
+
+            // Retire workers that have been running for long enough
+            if (this.recycleAfter > 0 && worker.getTasksRun() >= this.recycleAfter) {
+                worker.close();
+            } else {
+                this.idle.add(worker);
+            }
+            return result;
+        } finally {
+            this.slots.release();
+        }
+    }
+
+    /**
+     * Shuts down every idle worker.
+     */
+    @Override
+    public void close() {
+        PyWorker worker;
+        while ((worker = this.idle.poll()) != null) {
+            worker.close();
+        }
+    }
+}